@@ -0,0 +1,91 @@
+package org.ttang.fluent.reflection.benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ttang.fluent.reflection.BoundAnnotationProperties;
+import org.ttang.fluent.reflection.BoundAnnotationProperty;
+import org.ttang.fluent.reflection.BoundAnnotations;
+import org.ttang.fluent.reflection.DeclaredAnnotationProperties;
+import org.ttang.fluent.reflection.NoSuchPropertyException;
+import org.ttang.fluent.reflection.NoSuchValueException;
+
+/**
+ * Warm BoundAnnotationProperties and DeclaredAnnotationProperties pipelines against the equivalent java.lang.reflect code
+ * @author ttang
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnnotationPropertiesBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Properties {
+		public Handler handler;
+		public BoundAnnotationProperties properties;
+		public BoundAnnotationProperty codes;
+		public Method state;
+
+		@Setup
+		public void setup(SyntheticState synthetic) throws NoSuchPropertyException, NoSuchMethodException {
+			handler = synthetic.handler.getAnnotation(Handler.class);
+			properties = BoundAnnotations.on(synthetic.handler).properties();
+			codes = properties.named("codes");
+			state = Handler.class.getMethod("state");
+		}
+	}
+
+	@Benchmark
+	public String fluentBoundValue(SyntheticState state) throws NoSuchPropertyException, NoSuchValueException {
+		return BoundAnnotations.on(state.handler).matching(Handler.class).properties().named("state").stringValue();
+	}
+
+	@Benchmark
+	public String fluentKeptValue(Properties properties) throws NoSuchPropertyException, NoSuchValueException {
+		return properties.properties.named("state").stringValue();
+	}
+
+	@Benchmark
+	public int fluentKeptArrayElement(Properties properties) throws NoSuchValueException {
+		return properties.codes.intValue(1);
+	}
+
+	@Benchmark
+	public Object reflectValue(Properties properties) throws IllegalAccessException, InvocationTargetException {
+		return properties.state.invoke(properties.handler);
+	}
+
+	@Benchmark
+	public int reflectArrayElement(Properties properties) {
+		return properties.handler.codes()[1];
+	}
+
+	@Benchmark
+	public String directValue(Properties properties) {
+		return properties.handler.state();
+	}
+
+	@Benchmark
+	public Class<?> fluentDeclaredType() throws NoSuchPropertyException {
+		return DeclaredAnnotationProperties.from(Handler.class).named("state").type();
+	}
+
+	@Benchmark
+	public Class<?> reflectDeclaredType() throws NoSuchMethodException {
+		return Handler.class.getMethod("state").getReturnType();
+	}
+}
@@ -0,0 +1,25 @@
+package org.ttang.fluent.reflection.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler attached, so allocation rates are reported alongside timings.
+ * Accepts the usual JMH command line, for example a benchmark name pattern or -p methods=4096
+ * <p>
+ * Sample usage: java -jar target/benchmarks.jar DeclaredMethodsBenchmark
+ * @author ttang
+ *
+ */
+public class Benchmarks {
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		new Runner(new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build()).run();
+	}
+}
@@ -0,0 +1,67 @@
+package org.ttang.fluent.reflection.benchmarks;
+
+import java.lang.annotation.Annotation;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ttang.fluent.reflection.BoundAnnotations;
+import org.ttang.fluent.reflection.NoSuchPropertyException;
+
+/**
+ * Warm BoundAnnotations pipelines against the equivalent java.lang.reflect code
+ * @author ttang
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoundAnnotationsBenchmark {
+
+	@Benchmark
+	public Annotation fluentOnClass(SyntheticState state) throws NoSuchPropertyException {
+		return BoundAnnotations.on(state.type).matching(Marker.class).annotation();
+	}
+
+	@Benchmark
+	public Annotation fluentOnClassNamed(SyntheticState state) throws NoSuchPropertyException {
+		return BoundAnnotations.on(state.type).named("Marker").annotation();
+	}
+
+	@Benchmark
+	public Annotation reflectOnClass(SyntheticState state) {
+		for (Annotation annotation : state.type.getDeclaredAnnotations()) {
+			if (annotation.annotationType() == Marker.class) {
+				return annotation;
+			}
+		}
+		return null;
+	}
+
+	@Benchmark
+	public Annotation reflectGetAnnotation(SyntheticState state) {
+		return state.type.getAnnotation(Marker.class);
+	}
+
+	@Benchmark
+	public Annotation fluentOnMethod(SyntheticState state) throws NoSuchPropertyException {
+		return BoundAnnotations.on(state.handler).matching(Handler.class).annotation();
+	}
+
+	@Benchmark
+	public Annotation reflectOnMethod(SyntheticState state) {
+		for (Annotation annotation : state.handler.getAnnotations()) {
+			if (annotation.annotationType() == Handler.class) {
+				return annotation;
+			}
+		}
+		return null;
+	}
+}
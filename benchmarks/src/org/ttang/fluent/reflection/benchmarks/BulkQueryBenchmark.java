@@ -0,0 +1,95 @@
+package org.ttang.fluent.reflection.benchmarks;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ttang.fluent.reflection.BulkQuery;
+import org.ttang.fluent.reflection.MethodQuery;
+
+/**
+ * A query run over many classes nobody has reflected over yet, one at a time and through BulkQuery with increasing parallelism.
+ * Every invocation gets freshly loaded copies of the synthetic class, so the time is the cold reflection work and how well it scales with cores.
+ * The scaling is only meaningful on a machine with at least as many cores as batches, a run with fewer cores warns for each such trial.
+ * <p>
+ * Sample usage: java -jar target/benchmarks.jar BulkQueryBenchmark -rf json -rff bulk.json
+ * @author ttang
+ *
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class BulkQueryBenchmark {
+	private static final int CLASSES = 512;
+	private static final MethodQuery HANDLERS = MethodQuery.create().annotatedWith(Handler.class).withParameterTypes(String.class);
+
+	public SyntheticClasses synthetic;
+	public List<Class<?>> classes;
+
+	@Setup(Level.Trial)
+	public void compile() throws IOException {
+		synthetic = SyntheticClasses.compile(128);
+	}
+
+	@Setup(Level.Invocation)
+	public void load() {
+		classes = new ArrayList<Class<?>>(CLASSES);
+		for (int i = 0; i < CLASSES; i++) {
+			classes.add(synthetic.load());
+		}
+	}
+
+	@TearDown(Level.Invocation)
+	public void unload() throws IOException {
+		for (Class<?> type : classes) {
+			SyntheticClasses.unload(type);
+		}
+	}
+
+	@Benchmark
+	public int sequential() {
+		int found = 0;
+		for (Class<?> type : classes) {
+			found += HANDLERS.from(type).methods().size();
+		}
+		return found;
+	}
+
+	@State(Scope.Thread)
+	public static class Parallelism {
+		@Param({"1", "2", "4", "8"})
+		public int batches;
+
+		@Setup(Level.Trial)
+		public void checkCores() {
+			int cores = Runtime.getRuntime().availableProcessors();
+			if (batches > cores) {
+				System.err.println("BulkQueryBenchmark: " + batches + " batches on " + cores + " cores measures contention, not scaling");
+			}
+		}
+	}
+
+	@Benchmark
+	public Map<Class<?>, List<Method>> bulk(Parallelism parallelism) throws InterruptedException {
+		return BulkQuery.over(classes).parallelism(parallelism.batches).methods(HANDLERS);
+	}
+}
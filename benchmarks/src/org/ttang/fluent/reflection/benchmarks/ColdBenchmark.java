@@ -0,0 +1,82 @@
+package org.ttang.fluent.reflection.benchmarks;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ttang.fluent.reflection.BoundAnnotations;
+import org.ttang.fluent.reflection.DeclaredMethods;
+import org.ttang.fluent.reflection.NoSuchPropertyException;
+
+/**
+ * The first query against a class nobody has reflected over yet, so nothing is cached by the JDK or the library.
+ * Every invocation gets a freshly loaded copy of the synthetic class.
+ * @author ttang
+ *
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 50)
+@Fork(3)
+public class ColdBenchmark {
+
+	@State(Scope.Thread)
+	public static class FreshClass {
+		@Param({"8", "128", "4096"})
+		public int methods;
+
+		public SyntheticClasses classes;
+		public Class<?> type;
+
+		@Setup(Level.Trial)
+		public void compile() throws IOException {
+			classes = SyntheticClasses.compile(methods);
+		}
+
+		@Setup(Level.Invocation)
+		public void load() {
+			type = classes.load();
+		}
+
+		@TearDown(Level.Invocation)
+		public void unload() throws IOException {
+			SyntheticClasses.unload(type);
+		}
+	}
+
+	@Benchmark
+	public List<Method> fluentAnnotatedWith(FreshClass fresh) {
+		return DeclaredMethods.from(fresh.type).annotatedWith(Handler.class).withParameterTypes(String.class).methods();
+	}
+
+	@Benchmark
+	public List<Method> reflectAnnotatedWith(FreshClass fresh) {
+		return DeclaredMethodsBenchmark.Reflect.annotatedWith(fresh.type);
+	}
+
+	@Benchmark
+	public Annotation fluentOnClass(FreshClass fresh) throws NoSuchPropertyException {
+		return BoundAnnotations.on(fresh.type).matching(Marker.class).annotation();
+	}
+
+	@Benchmark
+	public Annotation reflectOnClass(FreshClass fresh) {
+		return fresh.type.getAnnotation(Marker.class);
+	}
+}
@@ -0,0 +1,123 @@
+package org.ttang.fluent.reflection.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ttang.fluent.reflection.DeclaredConstructors;
+import org.ttang.fluent.reflection.InstanceFactory;
+
+/**
+ * InstanceFactory against Constructor.newInstance and new, for no argument and three argument constructors
+ * @author ttang
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConstructorBenchmark {
+	private static final Constructor<Target> NO_ARGUMENT_CONSTRUCTOR = constructor();
+	private static final Constructor<Target> ARGUMENTS_CONSTRUCTOR = constructor(String.class, int.class, long.class);
+
+	private static final InstanceFactory<Target> NO_ARGUMENT_FACTORY = factory();
+	private static final InstanceFactory<Target> ARGUMENTS_FACTORY = factory(String.class, int.class, long.class);
+
+	private static final Supplier<Target> NO_ARGUMENT_SUPPLIER = NO_ARGUMENT_FACTORY.supplier();
+	private static final MethodHandle NO_ARGUMENT_HANDLE = NO_ARGUMENT_FACTORY.handle();
+	private static final MethodHandle ARGUMENTS_HANDLE = ARGUMENTS_FACTORY.handle();
+
+	public String name = "order";
+	public int count = 3;
+	public long total = 42L;
+
+	public static class Target {
+		private final String name;
+		private final int count;
+		private final long total;
+
+		public Target() {
+			this("", 0, 0L);
+		}
+
+		public Target(String name, int count, long total) {
+			this.name = name;
+			this.count = count;
+			this.total = total;
+		}
+	}
+
+	@Benchmark
+	public Target directNoArguments() {
+		return new Target();
+	}
+
+	@Benchmark
+	public Target reflectNoArguments() throws InstantiationException, IllegalAccessException, InvocationTargetException {
+		return NO_ARGUMENT_CONSTRUCTOR.newInstance();
+	}
+
+	@Benchmark
+	public Target factoryNoArguments() {
+		return NO_ARGUMENT_FACTORY.newInstance();
+	}
+
+	@Benchmark
+	public Target supplierNoArguments() {
+		return NO_ARGUMENT_SUPPLIER.get();
+	}
+
+	@Benchmark
+	public Target exactNoArguments() throws Throwable {
+		return (Target) NO_ARGUMENT_HANDLE.invokeExact();
+	}
+
+	@Benchmark
+	public Target directArguments() {
+		return new Target(name, count, total);
+	}
+
+	@Benchmark
+	public Target reflectArguments() throws InstantiationException, IllegalAccessException, InvocationTargetException {
+		return ARGUMENTS_CONSTRUCTOR.newInstance(name, count, total);
+	}
+
+	@Benchmark
+	public Target factoryArguments() {
+		return ARGUMENTS_FACTORY.newInstance(name, count, total);
+	}
+
+	@Benchmark
+	public Target exactArguments() throws Throwable {
+		return (Target) ARGUMENTS_HANDLE.invokeExact(name, count, total);
+	}
+
+	private static Constructor<Target> constructor(Class<?>... parameterTypes) {
+		try {
+			return DeclaredConstructors.from(Target.class).withParameterTypes(parameterTypes).constructor();
+		} catch (NoSuchMethodException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private static InstanceFactory<Target> factory(Class<?>... parameterTypes) {
+		try {
+			return DeclaredConstructors.from(Target.class).withParameterTypes(parameterTypes).factory();
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package org.ttang.fluent.reflection.benchmarks;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ttang.fluent.reflection.BoundAnnotations;
+import org.ttang.fluent.reflection.DeclaredMethods;
+import org.ttang.fluent.reflection.MethodQuery;
+import org.ttang.fluent.reflection.NoSuchPropertyException;
+
+/**
+ * The warm pipelines run from every available core at once against the same class,
+ * to show contention on the shared caches
+ * @author ttang
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+@Fork(1)
+public class ContendedBenchmark {
+	private static final MethodQuery HANDLERS = MethodQuery.create().annotatedWith(Handler.class).withParameterTypes(String.class);
+
+	@Benchmark
+	public List<Method> fluentAnnotatedWith(SyntheticState state) {
+		return DeclaredMethods.from(state.type).annotatedWith(Handler.class).withParameterTypes(String.class).methods();
+	}
+
+	@Benchmark
+	public List<Method> compiledAnnotatedWith(SyntheticState state) {
+		return HANDLERS.from(state.type).methods();
+	}
+
+	@Benchmark
+	public List<Method> reflectAnnotatedWith(SyntheticState state) {
+		return DeclaredMethodsBenchmark.Reflect.annotatedWith(state.type);
+	}
+
+	@Benchmark
+	public Method fluentNamed(SyntheticState state) throws NoSuchMethodException {
+		return DeclaredMethods.from(state.type).named(state.lastMethod).method();
+	}
+
+	@Benchmark
+	public Annotation fluentOnClass(SyntheticState state) throws NoSuchPropertyException {
+		return BoundAnnotations.on(state.type).matching(Marker.class).annotation();
+	}
+
+	@Benchmark
+	public Annotation reflectOnClass(SyntheticState state) {
+		return state.type.getAnnotation(Marker.class);
+	}
+}
@@ -0,0 +1,58 @@
+package org.ttang.fluent.reflection.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ttang.fluent.reflection.DeclaredClasses;
+
+/**
+ * Warm DeclaredClasses pipelines against the equivalent java.lang.reflect code
+ * @author ttang
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeclaredClassesBenchmark {
+
+	@Benchmark
+	public Class<?> fluentNamed(SyntheticState state) throws ClassNotFoundException {
+		return DeclaredClasses.from(state.type).named(state.lastNested).type();
+	}
+
+	@Benchmark
+	public Class<?> reflectNamed(SyntheticState state) {
+		for (Class<?> type : state.type.getDeclaredClasses()) {
+			if (type.getSimpleName().equals(state.lastNested)) {
+				return type;
+			}
+		}
+		return null;
+	}
+
+	@Benchmark
+	public Class<?> fluentAnnotationType() throws ClassNotFoundException {
+		return DeclaredClasses.from(DeclaredClassesBenchmark.class).named("Nested").annotationType();
+	}
+
+	@Benchmark
+	public Class<?> reflectAnnotationType() {
+		for (Class<?> type : DeclaredClassesBenchmark.class.getDeclaredClasses()) {
+			if (type.getSimpleName().equals("Nested") && type.isAnnotation()) {
+				return type;
+			}
+		}
+		return null;
+	}
+
+	/* package */ @interface Nested {
+	}
+}
@@ -0,0 +1,128 @@
+package org.ttang.fluent.reflection.benchmarks;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ttang.fluent.reflection.DeclaredMethods;
+import org.ttang.fluent.reflection.MethodQuery;
+
+/**
+ * Warm DeclaredMethods pipelines against the equivalent java.lang.reflect code
+ * @author ttang
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeclaredMethodsBenchmark {
+	private static final MethodQuery HANDLERS = MethodQuery.create().annotatedWith(Handler.class).withParameterTypes(String.class);
+	private static final MethodQuery ANY_OF = MethodQuery.create().annotatedWithAny(Deprecated.class, FunctionalInterface.class, SafeVarargs.class, Marker.class, Handler.class);
+	@SuppressWarnings("unchecked") // every element is an annotation type
+	private static final Class<? extends Annotation>[] ANY_OF_TYPES = (Class<? extends Annotation>[])new Class<?>[] { Deprecated.class, FunctionalInterface.class, SafeVarargs.class, Marker.class, Handler.class };
+
+	@Benchmark
+	public List<Method> fluentAnnotatedWith(SyntheticState state) {
+		return DeclaredMethods.from(state.type).annotatedWith(Handler.class).withParameterTypes(String.class).methods();
+	}
+
+	@Benchmark
+	public List<Method> compiledAnnotatedWith(SyntheticState state) {
+		return HANDLERS.from(state.type).methods();
+	}
+
+	@Benchmark
+	public List<Method> reflectAnnotatedWith(SyntheticState state) {
+		return Reflect.annotatedWith(state.type);
+	}
+
+	@Benchmark
+	public List<Method> fluentAnnotatedWithAny(SyntheticState state) {
+		return DeclaredMethods.from(state.type).annotatedWithAny(ANY_OF_TYPES).methods();
+	}
+
+	@Benchmark
+	public List<Method> compiledAnnotatedWithAny(SyntheticState state) {
+		return ANY_OF.from(state.type).methods();
+	}
+
+	@Benchmark
+	public List<Method> reflectAnnotatedWithAny(SyntheticState state) {
+		List<Method> methods = new ArrayList<Method>();
+		for (Method method : state.type.getDeclaredMethods()) {
+			for (Class<? extends Annotation> type : ANY_OF_TYPES) {
+				if (method.isAnnotationPresent(type)) {
+					methods.add(method);
+					break;
+				}
+			}
+		}
+		return methods;
+	}
+
+	@Benchmark
+	public Method fluentNamed(SyntheticState state) throws NoSuchMethodException {
+		return DeclaredMethods.from(state.type).named(state.lastMethod).method();
+	}
+
+	@Benchmark
+	public Method reflectNamed(SyntheticState state) {
+		for (Method method : state.type.getDeclaredMethods()) {
+			if (method.getName().equals(state.lastMethod)) {
+				return method;
+			}
+		}
+		return null;
+	}
+
+	@Benchmark
+	public Method reflectGetDeclaredMethod(SyntheticState state) throws NoSuchMethodException {
+		return state.type.getDeclaredMethod(state.lastMethod, int.class);
+	}
+
+	@Benchmark
+	public Method fluentMissing(SyntheticState state) {
+		return DeclaredMethods.from(state.type).named("missing").findOne();
+	}
+
+	@Benchmark
+	public List<Method> fluentSetAccessible(SyntheticState state) {
+		return DeclaredMethods.from(state.type).setAccessible(true).methods();
+	}
+
+	@Benchmark
+	public Method[] reflectSetAccessible(SyntheticState state) {
+		Method[] methods = state.type.getDeclaredMethods();
+		for (Method method : methods) {
+			method.setAccessible(true);
+		}
+		return methods;
+	}
+
+	/**
+	 * The java.lang.reflect baselines shared with the cold and contended benchmarks
+	 */
+	/* package */ static class Reflect {
+		/* package */ static List<Method> annotatedWith(Class<?> type) {
+			List<Method> methods = new ArrayList<Method>();
+			for (Method method : type.getDeclaredMethods()) {
+				if (method.isAnnotationPresent(Handler.class) && method.getParameterTypes().length == 1
+						&& method.getParameterTypes()[0] == String.class) {
+					methods.add(method);
+				}
+			}
+			return methods;
+		}
+	}
+}
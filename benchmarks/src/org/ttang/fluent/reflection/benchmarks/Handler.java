@@ -0,0 +1,19 @@
+package org.ttang.fluent.reflection.benchmarks;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The method annotation carried by every fourth method of the synthetic classes
+ * @author ttang
+ *
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Handler {
+	String state();
+	int priority() default 0;
+	int[] codes() default {};
+}
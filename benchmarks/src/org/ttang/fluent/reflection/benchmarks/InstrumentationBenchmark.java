@@ -0,0 +1,70 @@
+package org.ttang.fluent.reflection.benchmarks;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.ttang.fluent.reflection.BoundAnnotations;
+import org.ttang.fluent.reflection.DeclaredMethods;
+import org.ttang.fluent.reflection.Instrumentation;
+import org.ttang.fluent.reflection.NoSuchPropertyException;
+import org.ttang.fluent.reflection.ReflectionMetrics;
+
+/**
+ * The same pipeline with instrumentation switched off, which should match the other benchmarks, and switched on with an in memory sink
+ * @author ttang
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class InstrumentationBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Metrics {
+		private final ReflectionMetrics metrics = new ReflectionMetrics();
+
+		@Setup
+		public void setup() {
+			Instrumentation.install(metrics);
+		}
+
+		@TearDown
+		public void tearDown() {
+			Instrumentation.uninstall(metrics);
+		}
+	}
+
+	@Benchmark
+	@Fork(1)
+	public void disabled(SyntheticState state, Blackhole blackhole) throws NoSuchPropertyException {
+		pipeline(state, blackhole);
+	}
+
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = "-Dorg.ttang.fluent.reflection.instrumentation=true")
+	public void enabled(SyntheticState state, Metrics metrics, Blackhole blackhole) throws NoSuchPropertyException {
+		pipeline(state, blackhole);
+	}
+
+	private static void pipeline(SyntheticState state, Blackhole blackhole) throws NoSuchPropertyException {
+		List<Method> handlers = DeclaredMethods.from(state.type).annotatedWith(Handler.class).withParameterTypes(String.class).methods();
+		Annotation marker = BoundAnnotations.on(state.type).matching(Marker.class).annotation();
+		blackhole.consume(handlers);
+		blackhole.consume(marker);
+	}
+}
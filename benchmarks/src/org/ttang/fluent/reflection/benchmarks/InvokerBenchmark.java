@@ -0,0 +1,141 @@
+package org.ttang.fluent.reflection.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ttang.fluent.reflection.DeclaredMethods;
+import org.ttang.fluent.reflection.MethodInvoker;
+
+/**
+ * MethodInvoker against Method.invoke and a direct call, for static, instance, primitive returning and void methods
+ * @author ttang
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InvokerBenchmark {
+	private static final Target TARGET = new Target();
+
+	private static final Method STATIC_METHOD = method("twice");
+	private static final Method INSTANCE_METHOD = method("echo");
+	private static final Method VOID_METHOD = method("touch");
+
+	private static final MethodInvoker STATIC_INVOKER = invoker("twice", null);
+	private static final MethodInvoker INSTANCE_INVOKER = invoker("echo", TARGET);
+	private static final MethodInvoker VOID_INVOKER = invoker("touch", TARGET);
+
+	private static final MethodHandle STATIC_HANDLE = STATIC_INVOKER.handle();
+	private static final MethodHandle INSTANCE_HANDLE = INSTANCE_INVOKER.handle();
+	private static final MethodHandle VOID_HANDLE = VOID_INVOKER.handle();
+
+	public int value = 21;
+	public String text = "event";
+
+	public static class Target {
+		private int touched;
+
+		public static int twice(int value) {
+			return value * 2;
+		}
+
+		public String echo(String text) {
+			return text;
+		}
+
+		public void touch() {
+			touched++;
+		}
+	}
+
+	@Benchmark
+	public int directStatic() {
+		return Target.twice(value);
+	}
+
+	@Benchmark
+	public Object reflectStatic() throws IllegalAccessException, InvocationTargetException {
+		return STATIC_METHOD.invoke(null, value);
+	}
+
+	@Benchmark
+	public Object invokerStatic() throws Throwable {
+		return STATIC_INVOKER.invoke(value);
+	}
+
+	@Benchmark
+	public int exactStatic() throws Throwable {
+		return (int) STATIC_HANDLE.invokeExact(value);
+	}
+
+	@Benchmark
+	public String directInstance() {
+		return TARGET.echo(text);
+	}
+
+	@Benchmark
+	public Object reflectInstance() throws IllegalAccessException, InvocationTargetException {
+		return INSTANCE_METHOD.invoke(TARGET, text);
+	}
+
+	@Benchmark
+	public Object invokerInstance() throws Throwable {
+		return INSTANCE_INVOKER.invoke(text);
+	}
+
+	@Benchmark
+	public String exactInstance() throws Throwable {
+		return (String) INSTANCE_HANDLE.invokeExact(text);
+	}
+
+	@Benchmark
+	public void directVoid() {
+		TARGET.touch();
+	}
+
+	@Benchmark
+	public Object reflectVoid() throws IllegalAccessException, InvocationTargetException {
+		return VOID_METHOD.invoke(TARGET);
+	}
+
+	@Benchmark
+	public Object invokerVoid() throws Throwable {
+		return VOID_INVOKER.invoke();
+	}
+
+	@Benchmark
+	public void exactVoid() throws Throwable {
+		VOID_HANDLE.invokeExact();
+	}
+
+	private static Method method(String name) {
+		try {
+			return DeclaredMethods.from(Target.class).named(name).method();
+		} catch (NoSuchMethodException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private static MethodInvoker invoker(String name, Object target) {
+		try {
+			MethodInvoker invoker = DeclaredMethods.from(Target.class).named(name).invoker();
+			return target == null ? invoker : invoker.bind(target);
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package org.ttang.fluent.reflection.benchmarks;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The class annotation carried by the synthetic classes
+ * @author ttang
+ *
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Marker {
+	String name();
+	boolean singleton() default false;
+}
@@ -0,0 +1,127 @@
+package org.ttang.fluent.reflection.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+ * Generates, compiles and loads synthetic classes with a chosen number of methods,
+ * for benchmarks which need classes far larger than could sensibly be written by hand.
+ * <p>
+ * A class with n methods declares methods m0 to m(n-1), every fourth one annotated with Handler,
+ * and n/8 (at least one) nested classes Nested0 upwards. The class itself is annotated with Marker.
+ * Each call to load() defines a fresh copy of the class in its own ClassLoader,
+ * so the copy has never been seen by the MetadataCache.
+ * @author ttang
+ *
+ */
+public final class SyntheticClasses {
+	private final String className;
+	private final URL[] classPath;
+	private final int methods;
+
+	private SyntheticClasses(String className, File directory, int methods) throws IOException {
+		this.className = className;
+		this.classPath = new URL[] { directory.toURI().toURL() };
+		this.methods = methods;
+	}
+
+	/**
+	 * Generates and compiles the source of a class with a number of methods
+	 * @param methods the number of methods to declare
+	 * @return the compiled class, ready for loading
+	 * @throws IOException if the source could not be written or compiled
+	 */
+	public static SyntheticClasses compile(int methods) throws IOException {
+		String simpleName = "Synthetic" + methods;
+		File directory = Files.createTempDirectory("fluent-reflection-benchmarks").toFile();
+		File source = new File(directory, simpleName + ".java");
+		Files.write(source.toPath(), source(simpleName, methods).getBytes(StandardCharsets.UTF_8));
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null) {
+			throw new IOException("Synthetic classes need a JDK, no Java compiler is available");
+		}
+		int status = compiler.run(null, null, null, Arrays.asList(
+				"-classpath", System.getProperty("java.class.path"),
+				"-d", directory.getPath(),
+				source.getPath()).toArray(new String[0]));
+		if (status != 0) {
+			throw new IOException("Compiling " + source + " failed with status " + status);
+		}
+		return new SyntheticClasses(simpleName, directory, methods);
+	}
+
+	/**
+	 * @return a fresh copy of the class, defined by a new ClassLoader
+	 */
+	public Class<?> load() {
+		try {
+			return new URLClassLoader(classPath, SyntheticClasses.class.getClassLoader()).loadClass(className);
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Closes the ClassLoader which load() defined a copy with, so its jar handles are released
+	 * @param type a copy returned by load()
+	 * @throws IOException if the ClassLoader could not be closed
+	 */
+	public static void unload(Class<?> type) throws IOException {
+		((URLClassLoader)type.getClassLoader()).close();
+	}
+
+	/**
+	 * @return the name of the last declared method, the worst case for a linear search
+	 */
+	public String lastMethod() {
+		return "m" + (methods - 1);
+	}
+
+	/**
+	 * @return the name of the last annotated method
+	 */
+	public String lastHandler() {
+		return "m" + ((methods - 1) / 4 * 4);
+	}
+
+	/**
+	 * @return the simple name of the last nested class
+	 */
+	public String lastNested() {
+		return "Nested" + (nested(methods) - 1);
+	}
+
+	private static int nested(int methods) {
+		return Math.max(1, methods / 8);
+	}
+
+	private static String source(String simpleName, int methods) {
+		StringBuilder source = new StringBuilder();
+		source.append("import ").append(Handler.class.getName()).append(";\n");
+		source.append("import ").append(Marker.class.getName()).append(";\n\n");
+		source.append("@Marker(name = \"").append(simpleName).append("\")\n");
+		source.append("public class ").append(simpleName).append(" {\n");
+		for (int i = 0; i < nested(methods); i++) {
+			source.append("\tpublic static class Nested").append(i).append(" {}\n");
+		}
+		for (int i = 0; i < methods; i++) {
+			if (i % 4 == 0) {
+				source.append("\t@Handler(state = \"s").append(i).append("\", priority = ").append(i)
+						.append(", codes = {").append(i).append(", ").append(i + 1).append("})\n");
+				source.append("\tpublic void m").append(i).append("(String event) {}\n");
+			} else {
+				source.append("\tpublic int m").append(i).append("(int value) { return value + ").append(i).append("; }\n");
+			}
+		}
+		return source.append("}\n").toString();
+	}
+}
@@ -0,0 +1,46 @@
+package org.ttang.fluent.reflection.benchmarks;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * A small, medium or very large synthetic class, loaded once per trial
+ * @author ttang
+ *
+ */
+@State(Scope.Benchmark)
+public class SyntheticState {
+	@Param({"8", "128", "4096"})
+	public int methods;
+
+	public SyntheticClasses classes;
+	public Class<?> type;
+	public String lastMethod;
+	public String lastHandler;
+	public String lastNested;
+	public Method handler;
+	public Annotation marker;
+
+	@Setup
+	public void setup() throws IOException, NoSuchMethodException {
+		classes = SyntheticClasses.compile(methods);
+		type = classes.load();
+		lastMethod = classes.lastMethod();
+		lastHandler = classes.lastHandler();
+		lastNested = classes.lastNested();
+		handler = type.getDeclaredMethod(lastHandler, String.class);
+		marker = type.getAnnotation(Marker.class);
+	}
+
+	@TearDown
+	public void unload() throws IOException {
+		SyntheticClasses.unload(type);
+	}
+}
@@ -0,0 +1,307 @@
+package org.ttang.fluent.reflection.processor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+
+/**
+ * Writes an index of the classes and methods carrying runtime visible annotations, with their property values,
+ * to META-INF/fluent-reflection/annotations.idx, where org.ttang.fluent.reflection.AnnotationIndex reads it at runtime.
+ * Put the processor on the annotation processor path of the build whose classes should be indexed.
+ * <p>
+ * The index is written with DataOutputStream:
+ *		int magic, unsigned short version
+ *		int string count, then each string as an int length and its UTF-8 bytes, everything below refers to strings by their int position
+ *		int class count, then each class: name, annotations, int method count, then each method: name, descriptor, annotations
+ *		annotations are an int count, then each annotation: type name, int property count, then each property: name, type name, value
+ *		a value is a class file element value tag, followed by
+ *			Z a boolean, B a byte, C a char, S a short, I an int, J a long, F a float, D a double,
+ *			s a string, e the enum constant name, c the class name, @ an annotation, [ an int count and the values
+ * Type names are as Class.getName() gives them, defaults are written along with the explicit values.
+ * Each class is written out in the round it is compiled in, so no elements are held on to between rounds.
+ * An incremental compile only indexes the classes it compiles, so build the index from a full compile.
+ * @author ttang
+ *
+ */
+@SupportedAnnotationTypes("*")
+public class AnnotationIndexProcessor extends AbstractProcessor {
+	private static final String INDEX = "META-INF/fluent-reflection/annotations.idx";
+	private static final int MAGIC = 0x464C5249;
+	private static final int VERSION = 2;
+
+	private final Map<String, byte[]> classes = new TreeMap<String, byte[]>(); // sorted, so the same sources give the same index
+	private final Strings strings = new Strings();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+		if (round.processingOver()) {
+			if (!classes.isEmpty()) {
+				write();
+			}
+			return false;
+		}
+
+		for (Element element : round.getRootElements()) {
+			if (element instanceof TypeElement) {
+				index((TypeElement)element);
+			}
+		}
+		return false; // other processors still see the annotations
+	}
+
+	private void index(TypeElement type) {
+		List<AnnotationMirror> annotations = runtimeAnnotations(type);
+		List<ExecutableElement> methods = new ArrayList<ExecutableElement>();
+		for (Element member : type.getEnclosedElements()) {
+			if (member.getKind() == ElementKind.METHOD) {
+				if (!runtimeAnnotations(member).isEmpty()) {
+					methods.add((ExecutableElement)member);
+				}
+			} else if (member instanceof TypeElement) {
+				index((TypeElement)member);
+			}
+		}
+		if (!annotations.isEmpty() || !methods.isEmpty()) {
+			try {
+				classes.put(binaryName(type), write(annotations, methods));
+			} catch (IOException e) {
+				processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not index " + binaryName(type) + ": " + e, type);
+			}
+		}
+	}
+
+	private List<AnnotationMirror> runtimeAnnotations(Element element) {
+		List<AnnotationMirror> result = new ArrayList<AnnotationMirror>();
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			Retention retention = annotation.getAnnotationType().asElement().getAnnotation(Retention.class);
+			if (retention != null && retention.value() == RetentionPolicy.RUNTIME) {
+				result.add(annotation);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the class, less its name, as it will appear in the index
+	 */
+	private byte[] write(List<AnnotationMirror> annotations, List<ExecutableElement> methods) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		writeAnnotations(annotations, out, strings);
+		out.writeInt(methods.size());
+		for (ExecutableElement method : methods) {
+			out.writeInt(strings.of(method.getSimpleName().toString()));
+			out.writeInt(strings.of(descriptor(method)));
+			writeAnnotations(runtimeAnnotations(method), out, strings);
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private void write() {
+		for (String name : classes.keySet()) {
+			strings.of(name);
+		}
+		try (OutputStream file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX).openOutputStream()) {
+			DataOutputStream index = new DataOutputStream(file);
+			index.writeInt(MAGIC);
+			index.writeShort(VERSION);
+			strings.write(index);
+			index.writeInt(classes.size());
+			for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+				index.writeInt(strings.of(entry.getKey()));
+				index.write(entry.getValue());
+			}
+			index.flush();
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not write " + INDEX + ": " + e);
+		}
+	}
+
+	private void writeAnnotations(List<? extends AnnotationMirror> annotations, DataOutputStream out, Strings strings) throws IOException {
+		out.writeInt(annotations.size());
+		for (AnnotationMirror annotation : annotations) {
+			writeAnnotation(annotation, out, strings);
+		}
+	}
+
+	/**
+	 * Writes the properties in declaration order, explicit values are matched by name
+	 * since the elements of an explicit value need not be the same instances as the members of the annotation type
+	 */
+	private void writeAnnotation(AnnotationMirror annotation, DataOutputStream out, Strings strings) throws IOException {
+		TypeElement type = (TypeElement)annotation.getAnnotationType().asElement();
+		Map<String, AnnotationValue> explicit = new HashMap<String, AnnotationValue>();
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation.getElementValues().entrySet()) {
+			explicit.put(entry.getKey().getSimpleName().toString(), entry.getValue());
+		}
+
+		List<ExecutableElement> members = ElementFilter.methodsIn(type.getEnclosedElements());
+		out.writeInt(strings.of(binaryName(type)));
+		out.writeInt(members.size());
+		for (ExecutableElement member : members) {
+			String name = member.getSimpleName().toString();
+			AnnotationValue value = explicit.containsKey(name) ? explicit.get(name) : member.getDefaultValue();
+			if (value == null) {
+				throw new IOException("No value for " + name + " of " + binaryName(type));
+			}
+			out.writeInt(strings.of(name));
+			out.writeInt(strings.of(typeName(member.getReturnType())));
+			writeValue(value.getValue(), out, strings);
+		}
+	}
+
+	private void writeValue(Object value, DataOutputStream out, Strings strings) throws IOException {
+		if (value instanceof Boolean) {
+			out.writeByte('Z');
+			out.writeBoolean((Boolean)value);
+		} else if (value instanceof Byte) {
+			out.writeByte('B');
+			out.writeByte((Byte)value);
+		} else if (value instanceof Character) {
+			out.writeByte('C');
+			out.writeChar((Character)value);
+		} else if (value instanceof Short) {
+			out.writeByte('S');
+			out.writeShort((Short)value);
+		} else if (value instanceof Integer) {
+			out.writeByte('I');
+			out.writeInt((Integer)value);
+		} else if (value instanceof Long) {
+			out.writeByte('J');
+			out.writeLong((Long)value);
+		} else if (value instanceof Float) {
+			out.writeByte('F');
+			out.writeFloat((Float)value);
+		} else if (value instanceof Double) {
+			out.writeByte('D');
+			out.writeDouble((Double)value);
+		} else if (value instanceof String) {
+			out.writeByte('s');
+			out.writeInt(strings.of((String)value));
+		} else if (value instanceof VariableElement) {
+			out.writeByte('e');
+			out.writeInt(strings.of(((VariableElement)value).getSimpleName().toString()));
+		} else if (value instanceof TypeMirror) {
+			out.writeByte('c');
+			out.writeInt(strings.of(typeName((TypeMirror)value)));
+		} else if (value instanceof AnnotationMirror) {
+			out.writeByte('@');
+			writeAnnotation((AnnotationMirror)value, out, strings);
+		} else if (value instanceof List) {
+			List<?> values = (List<?>)value;
+			out.writeByte('[');
+			out.writeInt(values.size());
+			for (Object element : values) {
+				writeValue(((AnnotationValue)element).getValue(), out, strings);
+			}
+		} else {
+			throw new IOException("Unexpected annotation value " + value);
+		}
+	}
+
+	private String binaryName(TypeElement type) {
+		return processingEnv.getElementUtils().getBinaryName(type).toString();
+	}
+
+	/**
+	 * @return the type name as Class.getName() would give it
+	 */
+	private String typeName(TypeMirror type) {
+		TypeMirror erased = processingEnv.getTypeUtils().erasure(type);
+		switch (erased.getKind()) {
+		case ARRAY:
+			return descriptor(erased).replace('/', '.');
+		case DECLARED:
+			return binaryName((TypeElement)((DeclaredType)erased).asElement());
+		default:
+			return erased.getKind().name().toLowerCase(Locale.ROOT); // a primitive or void
+		}
+	}
+
+	private String descriptor(ExecutableElement method) {
+		StringBuilder descriptor = new StringBuilder("(");
+		for (VariableElement parameter : method.getParameters()) {
+			descriptor.append(descriptor(parameter.asType()));
+		}
+		return descriptor.append(')').append(descriptor(method.getReturnType())).toString();
+	}
+
+	private String descriptor(TypeMirror type) {
+		TypeMirror erased = processingEnv.getTypeUtils().erasure(type);
+		switch (erased.getKind()) {
+		case BOOLEAN: return "Z";
+		case BYTE: return "B";
+		case CHAR: return "C";
+		case SHORT: return "S";
+		case INT: return "I";
+		case LONG: return "J";
+		case FLOAT: return "F";
+		case DOUBLE: return "D";
+		case VOID: return "V";
+		case ARRAY: return "[" + descriptor(((ArrayType)erased).getComponentType());
+		case DECLARED: return "L" + binaryName((TypeElement)((DeclaredType)erased).asElement()).replace('.', '/') + ";";
+		default: throw new IllegalArgumentException("No descriptor for " + type);
+		}
+	}
+
+	/**
+	 * The string table, each string is written once and referred to by position
+	 */
+	private static class Strings {
+		private final Map<String, Integer> positions = new LinkedHashMap<String, Integer>();
+
+		private int of(String string) {
+			Integer position = positions.get(string);
+			if (position == null) {
+				position = positions.size();
+				positions.put(string, position);
+			}
+			return position;
+		}
+
+		private void write(DataOutputStream out) throws IOException {
+			out.writeInt(positions.size());
+			for (String string : positions.keySet()) {
+				byte[] bytes = string.getBytes(StandardCharsets.UTF_8); // writeUTF is limited to 64KB
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+		}
+	}
+}
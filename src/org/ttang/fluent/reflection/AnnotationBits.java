@@ -0,0 +1,107 @@
+package org.ttang.fluent.reflection;
+
+import java.lang.annotation.Annotation;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gives each annotation type a small integer id, the first time it is seen, so a set of annotation types can be held as a bitset.
+ * ClassMetadata keeps the bitset of the annotations on each class and method, and a filter over several annotation types
+ * builds its mask once, so "any of" and "all of" tests are a few word-wide AND operations rather than nested loops.
+ * @author ttang
+ *
+ */
+/* package */ class AnnotationBits {
+	private static final long[] NONE = new long[0];
+	private static final AtomicInteger nextId = new AtomicInteger();
+	private static final ClassValue<Integer> ids = new ClassValue<Integer>() {
+		@Override
+		protected Integer computeValue(Class<?> type) {
+			return nextId.getAndIncrement();
+		}
+	};
+
+	private AnnotationBits() {
+	}
+
+	/**
+	 * @param annotationType an annotation type
+	 * @return the id of the annotation type, which never changes
+	 */
+	/* package */ static int id(Class<? extends Annotation> annotationType) {
+		return ids.get(annotationType).intValue();
+	}
+
+	/**
+	 * @param annotations the annotations on a class or method
+	 * @return the bitset of their types
+	 */
+	/* package */ static long[] of(List<Annotation> annotations) {
+		if (annotations.isEmpty()) {
+			return NONE;
+		}
+		long[] bits = NONE;
+		for (int i = 0; i < annotations.size(); i++) {
+			bits = set(bits, id(annotations.get(i).annotationType()));
+		}
+		return bits;
+	}
+
+	/**
+	 * @param types the annotation types to look for
+	 * @return the bitset of the types
+	 */
+	@SafeVarargs
+	/* package */ static long[] mask(Class<? extends Annotation>... types) {
+		long[] mask = NONE;
+		for (Class<? extends Annotation> type : types) {
+			mask = set(mask, id(type));
+		}
+		return mask;
+	}
+
+	/**
+	 * @return true if the bitset holds id
+	 */
+	/* package */ static boolean contains(long[] bits, int id) {
+		int word = id >>> 6;
+		return word < bits.length && (bits[word] & (1L << id)) != 0;
+	}
+
+	/**
+	 * @return true if bits holds any of the types in mask
+	 */
+	/* package */ static boolean any(long[] bits, long[] mask) {
+		int words = Math.min(bits.length, mask.length);
+		for (int i = 0; i < words; i++) {
+			if ((bits[i] & mask[i]) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return true if bits holds every type in mask
+	 */
+	/* package */ static boolean all(long[] bits, long[] mask) {
+		for (int i = 0; i < mask.length; i++) {
+			long word = i < bits.length ? bits[i] : 0;
+			if ((word & mask[i]) != mask[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static long[] set(long[] bits, int id) {
+		int word = id >>> 6;
+		if (word >= bits.length) {
+			long[] grown = new long[word + 1];
+			System.arraycopy(bits, 0, grown, 0, bits.length);
+			bits = grown;
+		}
+		bits[word] |= 1L << id;
+		return bits;
+	}
+}
@@ -0,0 +1,247 @@
+package org.ttang.fluent.reflection;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answers which classes and methods carry an annotation from the indexes written at build time by
+ * the fluent-reflection-processor module, rather than by scanning the class path or reflecting.
+ * Every META-INF/fluent-reflection/annotations.idx the loader can see is read, so each jar can carry its own index.
+ * Reading the indexes is the only real cost, keep the AnnotationIndex rather than reading it for each question.
+ * <p>
+ * Sample usage:
+ *		AnnotationIndex index = AnnotationIndex.of(getClass().getClassLoader());
+ *
+ *		List<Class<?>> services = index.annotatedWith(RestService.class).types();
+ *		String path = index.annotationsOn("com.example.Orders").matching(RestService.class).properties().named("path").stringValue();
+ * @author ttang
+ *
+ */
+public class AnnotationIndex {
+	private static final String INDEX = "META-INF/fluent-reflection/annotations.idx";
+	private static final int MAGIC = 0x464C5249;
+	private static final int VERSION = 2;
+
+	private final ClassFileContext context;
+	private final Map<String, List<ClassFileAnnotation>> annotationsByClass = new HashMap<String, List<ClassFileAnnotation>>();
+	private final Map<String, List<String>> classesByAnnotation = new HashMap<String, List<String>>();
+	private final Map<String, List<ClassFileMethod>> methodsByAnnotation = new HashMap<String, List<ClassFileMethod>>();
+
+	private AnnotationIndex(ClassLoader loader) {
+		this.context = new ClassFileContext(loader);
+	}
+
+	/**
+	 * Reads every annotation index the loader can see
+	 * @param loader the loader used to find the indexes, and to load the classes they name
+	 * @return the merged index, which is empty if there are no indexes
+	 * @throws IOException if an index cannot be read or is not an annotation index
+	 */
+	public static AnnotationIndex of(ClassLoader loader) throws IOException {
+		AnnotationIndex index = new AnnotationIndex(loader);
+		Enumeration<URL> resources = index.context.loader().getResources(INDEX);
+		while (resources.hasMoreElements()) {
+			try (InputStream in = resources.nextElement().openStream()) {
+				index.read(new DataInputStream(new BufferedInputStream(in)));
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * @return true if no indexed classes were found
+	 */
+	public boolean isEmpty() {
+		return annotationsByClass.isEmpty() && methodsByAnnotation.isEmpty();
+	}
+
+	/**
+	 * @param annotationClass the annotation to look for
+	 * @return the binary names of the indexed classes annotated with annotationClass, without loading them
+	 */
+	public List<String> classNamesAnnotatedWith(Class<? extends Annotation> annotationClass) {
+		List<String> classNames = classesByAnnotation.get(annotationClass.getName());
+		return classNames == null ? Collections.<String>emptyList() : Collections.unmodifiableList(classNames);
+	}
+
+	/**
+	 * Loads the indexed classes annotated with annotationClass, without initializing them.
+	 * Classes which the loader cannot load are left out.
+	 * @param annotationClass the annotation to look for
+	 * @return the annotated classes for chaining
+	 */
+	public DeclaredClasses annotatedWith(Class<? extends Annotation> annotationClass) {
+		List<Class<?>> types = new ArrayList<Class<?>>();
+		for (String className : classNamesAnnotatedWith(annotationClass)) {
+			try {
+				types.add(context.load(className));
+			} catch (ClassNotFoundException | LinkageError e) {
+				// indexed, but not loadable through this loader
+			}
+		}
+		return DeclaredClasses.of(types);
+	}
+
+	/**
+	 * @param annotationClass the annotation to look for
+	 * @return the indexed methods annotated with annotationClass for chaining, without loading their classes
+	 */
+	public ClassFileMethods classFileMethodsAnnotatedWith(Class<? extends Annotation> annotationClass) {
+		List<ClassFileMethod> methods = methodsByAnnotation.get(annotationClass.getName());
+		return ClassFileMethods.of(methods == null ? Collections.<ClassFileMethod>emptyList() : methods);
+	}
+
+	/**
+	 * Loads the classes declaring the indexed methods annotated with annotationClass and finds the Java Methods.
+	 * Methods which cannot be loaded, or which no longer match the index, are left out.
+	 * @param annotationClass the annotation to look for
+	 * @return the annotated methods for chaining
+	 */
+	public DeclaredMethods methodsAnnotatedWith(Class<? extends Annotation> annotationClass) {
+		List<Method> methods = new ArrayList<Method>();
+		for (ClassFileMethod method : classFileMethodsAnnotatedWith(annotationClass)) {
+			try {
+				methods.add(method.method());
+			} catch (ClassNotFoundException | NoSuchMethodException | LinkageError e) {
+				// indexed, but not loadable through this loader
+			}
+		}
+		return DeclaredMethods.of(methods);
+	}
+
+	/**
+	 * The indexed annotations on a class, with their property values, without loading the class
+	 * @param className the binary name of the class
+	 * @return the annotations for chaining, which are empty if the class is not indexed
+	 */
+	public ClassFileAnnotations annotationsOn(String className) {
+		List<ClassFileAnnotation> annotations = annotationsByClass.get(className);
+		return ClassFileAnnotations.of(annotations == null ? Collections.<ClassFileAnnotation>emptyList() : annotations);
+	}
+
+	private void read(DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException(INDEX + " is not an annotation index");
+		}
+		int version = in.readUnsignedShort();
+		if (version != VERSION) {
+			throw new IOException(INDEX + " has unsupported version " + version);
+		}
+		String[] strings = new String[in.readInt()];
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = readString(in);
+		}
+
+		for (int classes = in.readInt(); classes > 0; classes--) {
+			String className = strings[in.readInt()];
+			List<ClassFileAnnotation> annotations = readAnnotations(in, strings);
+			if (!annotations.isEmpty()) {
+				annotationsByClass.put(className, annotations);
+				for (ClassFileAnnotation annotation : annotations) {
+					add(classesByAnnotation, annotation.typeName(), className);
+				}
+			}
+			for (int methods = in.readInt(); methods > 0; methods--) {
+				String name = strings[in.readInt()];
+				String descriptor = strings[in.readInt()];
+				List<ClassFileAnnotation> methodAnnotations = readAnnotations(in, strings);
+				ClassFileMethod method = new ClassFileMethod(context, className, name, descriptor, methodAnnotations, null);
+				for (ClassFileAnnotation annotation : methodAnnotations) {
+					add(methodsByAnnotation, annotation.typeName(), method);
+				}
+			}
+		}
+	}
+
+	private List<ClassFileAnnotation> readAnnotations(DataInputStream in, String[] strings) throws IOException {
+		int count = in.readInt();
+		if (count == 0) {
+			return Collections.emptyList();
+		}
+		List<ClassFileAnnotation> annotations = new ArrayList<ClassFileAnnotation>(count);
+		for (int i = 0; i < count; i++) {
+			annotations.add(readAnnotation(in, strings));
+		}
+		return Collections.unmodifiableList(annotations);
+	}
+
+	private ClassFileAnnotation readAnnotation(DataInputStream in, String[] strings) throws IOException {
+		String typeName = strings[in.readInt()];
+		int count = in.readInt();
+		List<String> names = new ArrayList<String>(count);
+		List<String> typeNames = new ArrayList<String>(count);
+		List<Object> values = new ArrayList<Object>(count);
+		for (int i = 0; i < count; i++) {
+			names.add(strings[in.readInt()]);
+			typeNames.add(strings[in.readInt()]);
+			values.add(readValue(in, strings));
+		}
+		return new ClassFileAnnotation(context, typeName, names, values, typeNames);
+	}
+
+	/**
+	 * Reads a value into the same representation ClassFileParser gives element values
+	 */
+	private Object readValue(DataInputStream in, String[] strings) throws IOException {
+		int tag = in.readUnsignedByte();
+		switch (tag) {
+		case 'Z':
+			return in.readBoolean();
+		case 'B':
+			return in.readByte();
+		case 'C':
+			return in.readChar();
+		case 'S':
+			return in.readShort();
+		case 'I':
+			return in.readInt();
+		case 'J':
+			return in.readLong();
+		case 'F':
+			return in.readFloat();
+		case 'D':
+			return in.readDouble();
+		case 's':
+		case 'e':
+		case 'c':
+			return strings[in.readInt()];
+		case '@':
+			return readAnnotation(in, strings);
+		case '[':
+			int count = in.readInt();
+			List<Object> values = new ArrayList<Object>(count);
+			for (int i = 0; i < count; i++) {
+				values.add(readValue(in, strings));
+			}
+			return Collections.unmodifiableList(values);
+		default:
+			throw new IOException(INDEX + " has unknown value tag " + (char)tag);
+		}
+	}
+
+	private static <T> void add(Map<String, List<T>> map, String key, T value) {
+		List<T> values = map.get(key);
+		if (values == null) {
+			map.put(key, values = new ArrayList<T>());
+		}
+		values.add(value);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,91 @@
+package org.ttang.fluent.reflection;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A reusable, immutable and thread safe query over the annotations on a class or method.
+ * The query remembers its result for each class or method it is applied to, see MethodQuery.
+ * <p>
+ * Sample usage:
+ *		static final AnnotationQuery SINGLETONS = AnnotationQuery.create().matching(Singleton.class);
+ *
+ *		Annotation singleton = SINGLETONS.on(MyClass.class).annotation();
+ * @author ttang
+ *
+ */
+public final class AnnotationQuery {
+	private final Selection<Annotation> selection;
+	private final ClassValue<List<Annotation>> classResults = new ClassValue<List<Annotation>>() {
+		@Override
+		protected List<Annotation> computeValue(Class<?> type) {
+			return select(MetadataCache.of(type).declaredAnnotations());
+		}
+	};
+	private final ClassValue<ConcurrentMap<Method, List<Annotation>>> methodResults = new ClassValue<ConcurrentMap<Method, List<Annotation>>>() {
+		@Override
+		protected ConcurrentMap<Method, List<Annotation>> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<Method, List<Annotation>>();
+		}
+	};
+
+	private AnnotationQuery(Selection<Annotation> selection) {
+		this.selection = selection;
+	}
+
+	/**
+	 * @return a query selecting every annotation, for chaining
+	 */
+	public static AnnotationQuery create() {
+		return new AnnotationQuery(Selection.of(Collections.<Annotation>emptyList()));
+	}
+
+	/**
+	 * @param names for filtering with
+	 * @return a new query which also requires annotations to have one of the simple names
+	 */
+	public AnnotationQuery named(String... names) {
+		return new AnnotationQuery(selection.where(Filters.annotationsNamed(names)));
+	}
+
+	/**
+	 * @param types for filtering with
+	 * @return a new query which also requires annotations to be one of the types
+	 */
+	@SafeVarargs
+	public final AnnotationQuery matching(Class<? extends Annotation>... types) {
+		return new AnnotationQuery(selection.where(Filters.annotationsMatching(types)));
+	}
+
+	/**
+	 * Applies the query to the annotations on a class, the result is remembered for the class
+	 * @param annotatedClass the annotated class
+	 * @return the selected annotations for chaining
+	 */
+	public BoundAnnotations on(Class<?> annotatedClass) {
+		return BoundAnnotations.of(classResults.get(annotatedClass), MetadataCache.of(annotatedClass));
+	}
+
+	/**
+	 * Applies the query to the annotations on a method, the result is remembered for the method
+	 * @param annotatedMethod the annotated method
+	 * @return the selected annotations for chaining
+	 */
+	public BoundAnnotations on(Method annotatedMethod) {
+		ConcurrentMap<Method, List<Annotation>> results = methodResults.get(annotatedMethod.getDeclaringClass());
+		List<Annotation> result = results.get(annotatedMethod);
+		if (result == null) {
+			result = select(MetadataCache.of(annotatedMethod.getDeclaringClass()).annotations(annotatedMethod));
+			results.putIfAbsent(annotatedMethod, result);
+		}
+		return BoundAnnotations.of(result, MetadataCache.of(annotatedMethod.getDeclaringClass()));
+	}
+
+	private List<Annotation> select(List<Annotation> annotations) {
+		return Collections.unmodifiableList(selection.over(annotations).list());
+	}
+}
@@ -0,0 +1,276 @@
+package org.ttang.fluent.reflection;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The property values of an annotation, read once into a flat array laid out in the order BoundAnnotationProperties gives the properties.
+ * Reads are then array loads rather than calls through the annotation's proxy.
+ * Instances are immutable, so they can be kept and shared between threads: array values are copied when they are read,
+ * or can be viewed through values(int), and nested annotations are themselves materialized as AnnotationValues.
+ * <p>
+ * Sample usage:
+ *		AnnotationValues threading = BoundAnnotations.on(MyService.class).matching(Threading.class).values();
+ *		int poolSize = threading.intValue(threading.indexOf("poolSize"));
+ * @author ttang
+ *
+ */
+public final class AnnotationValues {
+	private final Class<? extends Annotation> annotationType;
+	private final ClassMetadata metadata;
+	private final Object[] values;
+
+	private AnnotationValues(Class<? extends Annotation> annotationType, ClassMetadata metadata, Object[] values) {
+		this.annotationType = annotationType;
+		this.metadata = metadata;
+		this.values = values;
+	}
+
+	/**
+	 * Reads every property of an annotation
+	 * @param annotation the annotation
+	 * @return the values
+	 * @throws NoSuchValueException if a value could not be read
+	 */
+	public static AnnotationValues of(Annotation annotation) throws NoSuchValueException {
+		long start = Instrumentation.start();
+		try {
+			ClassMetadata metadata = MetadataCache.of(annotation.annotationType());
+			List<Method> properties = metadata.declaredMethods();
+			Object[] values = new Object[properties.size()];
+			for (int i = 0; i < values.length; i++) {
+				Method property = properties.get(i);
+				try {
+					values[i] = materialize(property.invoke(annotation));
+				} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+					throw new NoSuchValueException("Value not retrievable for " + property.getName(), e);
+				}
+			}
+			return new AnnotationValues(annotation.annotationType(), metadata, values);
+		} finally {
+			Instrumentation.timed("AnnotationValues.of", start);
+		}
+	}
+
+	/**
+	 * @return the type of the annotation the values were read from
+	 */
+	public Class<? extends Annotation> annotationType() {
+		return annotationType;
+	}
+
+	/**
+	 * @return the number of properties
+	 */
+	public int size() {
+		return values.length;
+	}
+
+	/**
+	 * Look the position of a property up once, and read it by position from then on
+	 * @param name the property name
+	 * @return the position of the property, or -1 if there is no property called name
+	 */
+	public int indexOf(String name) {
+		int[] positions = metadata.declaredMethodIndex().get(name);
+		return positions == null ? -1 : positions[0];
+	}
+
+	/**
+	 * @param index the position of the property
+	 * @return the name of the property
+	 */
+	public String name(int index) {
+		return metadata.declaredMethods().get(index).getName();
+	}
+
+	/**
+	 * @param index the position of the property
+	 * @return the declared type of the property, nested annotations are read as AnnotationValues whatever their declared type
+	 */
+	public Class<?> type(int index) {
+		return metadata.declaredMethods().get(index).getReturnType();
+	}
+
+	/**
+	 * @param index the position of the property
+	 * @return the value, array values are copied
+	 */
+	public Object get(int index) {
+		return ArrayUtils.copyIfArray(values[index]);
+	}
+
+	/**
+	 * @param name the property name
+	 * @return the value, array values are copied
+	 * @throws NoSuchPropertyException if there is no property called name
+	 */
+	public Object get(String name) throws NoSuchPropertyException {
+		int index = indexOf(name);
+		if (index < 0) {
+			Throw.Always().NoSuchProperty(name + " was not found");
+		}
+		return get(index);
+	}
+
+	/**
+	 * @param index the position of the property
+	 * @param type the expected type of the value, such as String.class or AnnotationValues.class
+	 * @return the value, array values are copied
+	 * @throws NoSuchValueException if the value is not of type
+	 */
+	public <T> T get(int index, Class<T> type) throws NoSuchValueException {
+		Object value = values[index];
+		if (!type.isInstance(value)) {
+			Throw.Always().NoSuchValue(name(index) + " is not of type " + type.getSimpleName());
+		}
+		return type.cast(ArrayUtils.copyIfArray(value));
+	}
+
+	/**
+	 * @param index the position of the property
+	 * @return the value of an int property
+	 * @throws NoSuchValueException if the value is not an int
+	 */
+	public int intValue(int index) throws NoSuchValueException {
+		return get(index, Integer.class).intValue();
+	}
+
+	/**
+	 * @param index the position of the property
+	 * @return the value of a long property
+	 * @throws NoSuchValueException if the value is not a long
+	 */
+	public long longValue(int index) throws NoSuchValueException {
+		return get(index, Long.class).longValue();
+	}
+
+	/**
+	 * @param index the position of the property
+	 * @return the value of a double property
+	 * @throws NoSuchValueException if the value is not a double
+	 */
+	public double doubleValue(int index) throws NoSuchValueException {
+		return get(index, Double.class).doubleValue();
+	}
+
+	/**
+	 * @param index the position of the property
+	 * @return the value of a boolean property
+	 * @throws NoSuchValueException if the value is not a boolean
+	 */
+	public boolean booleanValue(int index) throws NoSuchValueException {
+		return get(index, Boolean.class).booleanValue();
+	}
+
+	/**
+	 * @param index the position of the property
+	 * @return the value of a String property
+	 * @throws NoSuchValueException if the value is not a String
+	 */
+	public String stringValue(int index) throws NoSuchValueException {
+		return get(index, String.class);
+	}
+
+	/**
+	 * @param index the position of the property
+	 * @return the value of a Class property
+	 * @throws NoSuchValueException if the value is not a Class
+	 */
+	public Class<?> classValue(int index) throws NoSuchValueException {
+		return get(index, Class.class);
+	}
+
+	/**
+	 * @param index the position of the property
+	 * @return the values of a nested annotation property
+	 * @throws NoSuchValueException if the value is not an annotation
+	 */
+	public AnnotationValues annotationValue(int index) throws NoSuchValueException {
+		return get(index, AnnotationValues.class);
+	}
+
+	/**
+	 * A read only view over an array property, without copying it.
+	 * Elements of primitive arrays are boxed as they are read.
+	 * @param index the position of the property
+	 * @return an unmodifiable list view of the array
+	 * @throws NoSuchValueException if the value is not an array
+	 */
+	public List<?> values(int index) throws NoSuchValueException {
+		final Object value = values[index];
+		if (!value.getClass().isArray()) {
+			Throw.Always().NoSuchValue(name(index) + " is not an array");
+		}
+		if (value instanceof Object[]) {
+			return Collections.unmodifiableList(Arrays.asList((Object[])value));
+		}
+		return new AbstractList<Object>() {
+			@Override
+			public Object get(int element) {
+				return Array.get(value, element);
+			}
+
+			@Override
+			public int size() {
+				return Array.getLength(value);
+			}
+		};
+	}
+
+	/**
+	 * @return a copy of the flat array of values, in property order
+	 */
+	public Object[] toArray() {
+		Object[] copy = values.clone();
+		for (int i = 0; i < copy.length; i++) {
+			copy[i] = ArrayUtils.copyIfArray(copy[i]);
+		}
+		return copy;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof AnnotationValues)) {
+			return false;
+		}
+		AnnotationValues that = (AnnotationValues)other;
+		return annotationType == that.annotationType && Arrays.deepEquals(values, that.values);
+	}
+
+	@Override
+	public int hashCode() {
+		return annotationType.hashCode() * 31 + Arrays.deepHashCode(values);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder string = new StringBuilder("@").append(annotationType.getName()).append('(');
+		for (int i = 0; i < values.length; i++) {
+			String value = Arrays.deepToString(new Object[] { values[i] }); // handles primitive and nested arrays alike
+			string.append(i == 0 ? "" : ", ").append(name(i)).append('=').append(value, 1, value.length() - 1);
+		}
+		return string.append(')').toString();
+	}
+
+	private static Object materialize(Object value) throws NoSuchValueException {
+		if (value instanceof Annotation) {
+			return of((Annotation)value);
+		}
+		if (value instanceof Annotation[]) {
+			Annotation[] annotations = (Annotation[])value;
+			AnnotationValues[] nested = new AnnotationValues[annotations.length];
+			for (int i = 0; i < annotations.length; i++) {
+				nested[i] = of(annotations[i]);
+			}
+			return nested;
+		}
+		return value; // the annotation proxy already returns a copy of an array
+	}
+}
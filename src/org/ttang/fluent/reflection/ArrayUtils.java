@@ -1,5 +1,10 @@
 package org.ttang.fluent.reflection;
 
+import java.lang.reflect.Array;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * Array utility class
  * @author ttang
@@ -19,4 +24,34 @@ public class ArrayUtils {
 		}
 		return false;
 	}
+
+	/**
+	 * @param array the items to be matched against
+	 * @return a set for hash lookups of the items in array
+	 */
+	@SafeVarargs
+	public static <T> Set<T> asSet(T... array) {
+		if (array.length == 1) {
+			return Collections.singleton(array[0]);
+		}
+		Set<T> set = new HashSet<T>(array.length * 2);
+		for (T item : array) {
+			set.add(item);
+		}
+		return set;
+	}
+
+	/**
+	 * @param value any value, such as an annotation property
+	 * @return a shallow copy of value if it is an array, of either primitives or objects, otherwise value itself
+	 */
+	/* package */ static Object copyIfArray(Object value) {
+		if (!value.getClass().isArray()) {
+			return value;
+		}
+		int length = Array.getLength(value);
+		Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+		System.arraycopy(value, 0, copy, 0, length);
+		return copy;
+	}
 }
@@ -4,6 +4,8 @@ import java.lang.annotation.Annotation;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Stream;
 
 /**
  * A fluent api for reflection over Annotation properties (aka values)
@@ -11,19 +13,28 @@ import java.util.List;
  *
  */
 public class BoundAnnotationProperties implements Iterable<BoundAnnotationProperty>{
-	private List<BoundAnnotationProperty> properties;
+	private final List<BoundAnnotationProperty> properties;
+	private final ClassMetadata metadata;
+	private final Annotation annotation;
 
 	private BoundAnnotationProperties(Annotation annotation) {
-		this.properties = BoundAnnotationProperty.from(annotation,annotation.annotationType().getDeclaredMethods());
+		this.annotation = annotation;
+		this.metadata = MetadataCache.of(annotation.annotationType());
+		this.properties = Collections.unmodifiableList(BoundAnnotationProperty.from(annotation,metadata.declaredMethods()));
 	}
 	
 	/**
-	 * Create from a Java Annotation
+	 * Create from a Java Annotation. Each call reads the values afresh, BoundAnnotations.properties() remembers them with the annotated class.
 	 * @param annotation
 	 * @return BoundAnnotationProperties for fluent chaining
 	 */
 	public static BoundAnnotationProperties of(Annotation annotation) {
-		return new BoundAnnotationProperties(annotation);
+		long start = Instrumentation.start();
+		try {
+			return new BoundAnnotationProperties(annotation);
+		} finally {
+			Instrumentation.timed("BoundAnnotationProperties.of", start);
+		}
 	}
 
 	/**
@@ -33,17 +44,54 @@ public class BoundAnnotationProperties implements Iterable<BoundAnnotationProper
 	 * @throws NoSuchPropertyException if there is no value called name
 	 */
 	public BoundAnnotationProperty named(String name) throws NoSuchPropertyException {
-		for (BoundAnnotationProperty property : properties) {
-			if (property.name().equals(name)) {
-				return property;
-			}
+		BoundAnnotationProperty property = find(name);
+		if (property == null) {
+			Throw.Always().NoSuchProperty(name + " was not found");
 		}
-		
-		throw new NoSuchPropertyException(name + " was not found");
+		return property;
+	}
+
+	/**
+	 * Fetch the BoundAnnotationProperty named by name, without throwing if there is none
+	 * @param name
+	 * @return BoundAnnotationProperty, or null if there is no value called name
+	 */
+	public BoundAnnotationProperty find(String name) {
+		int[] positions = metadata.declaredMethodIndex().get(name);
+		return positions == null ? null : properties.get(positions[0]);
+	}
+
+	/**
+	 * Reads every property into a flat, immutable value object, laid out in the same order as these properties
+	 * @return the property values
+	 * @throws NoSuchValueException if a value could not be read
+	 */
+	public AnnotationValues values() throws NoSuchValueException {
+		return AnnotationValues.of(annotation);
 	}
 
 	@Override
 	public Iterator<BoundAnnotationProperty> iterator() {
-		return Collections.unmodifiableList(properties).iterator();
+		return properties.iterator();
+	}
+
+	@Override
+	public Spliterator<BoundAnnotationProperty> spliterator() {
+		return Selection.of(properties).spliterator();
+	}
+
+	/**
+	 * @return a sequential stream of the properties in the list
+	 */
+	public Stream<BoundAnnotationProperty> stream() {
+		return Selection.of(properties).stream(false);
+	}
+
+	/**
+	 * The list is split by index rather than copied, so large lists can be filtered and mapped in parallel
+	 * @return a parallel stream of the properties in the list
+	 */
+	public Stream<BoundAnnotationProperty> parallelStream() {
+		return Selection.of(properties).stream(true);
 	}
 }
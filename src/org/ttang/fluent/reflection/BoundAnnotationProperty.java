@@ -1,10 +1,13 @@
 package org.ttang.fluent.reflection;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -15,17 +18,20 @@ import java.util.List;
  *
  */
 public class BoundAnnotationProperty {
+	private static final Object UNREAD = new Object();
+
 	private Annotation annotation;
 	private Method method;
+	private volatile Object value = UNREAD;
 
 	private BoundAnnotationProperty(Annotation annotation,Method method) {
 		this.annotation = annotation;
 		this.method = method;
 	}
 	
-	/* package */ static List<BoundAnnotationProperty> from(Annotation annotation,Method[] methods) {
+	/* package */ static List<BoundAnnotationProperty> from(Annotation annotation,List<Method> methods) {
 		List<BoundAnnotationProperty> properties = new ArrayList<BoundAnnotationProperty>();
-		for (Method method : Arrays.asList(methods)) {
+		for (Method method : methods) {
 			properties.add(BoundAnnotationProperty.from(annotation,method));
 		}
 		return properties;
@@ -52,15 +58,196 @@ public class BoundAnnotationProperty {
 	}
 	
 	/**
-	 * value of the annotation property
+	 * value of the annotation property. The value is read from the annotation once and remembered,
+	 * array values are copied so the remembered value cannot be modified.
 	 * @return annotation property value
 	 * @throws NoSuchValueException if the value could not be retrieved
 	 */
-	public Object value() throws NoSuchValueException  {
+	public Object value() throws NoSuchValueException {
+		long start = Instrumentation.start();
+		try {
+			return ArrayUtils.copyIfArray(read());
+		} finally {
+			Instrumentation.timed("BoundAnnotationProperty.value", start);
+		}
+	}
+
+	/**
+	 * value of the annotation property as a specific type, array values are copied as they are by value()
+	 * @param type the expected type of the value, such as String.class or int[].class
+	 * @return annotation property value
+	 * @throws NoSuchValueException if the value could not be retrieved or is not of type
+	 */
+	public <T> T value(Class<T> type) throws NoSuchValueException {
+		long start = Instrumentation.start();
 		try {
-			return method.invoke(annotation);
-		} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-			throw new NoSuchValueException("Value not retrievable for " + method.getName(),e);
+			return type.cast(ArrayUtils.copyIfArray(read(type)));
+		} finally {
+			Instrumentation.timed("BoundAnnotationProperty.value", start);
+		}
+	}
+
+	/**
+	 * @return the value of an int annotation property
+	 * @throws NoSuchValueException if the value could not be retrieved or is not an int
+	 */
+	public int intValue() throws NoSuchValueException {
+		return value(Integer.class).intValue();
+	}
+
+	/**
+	 * @return the value of a long annotation property
+	 * @throws NoSuchValueException if the value could not be retrieved or is not a long
+	 */
+	public long longValue() throws NoSuchValueException {
+		return value(Long.class).longValue();
+	}
+
+	/**
+	 * @return the value of a double annotation property
+	 * @throws NoSuchValueException if the value could not be retrieved or is not a double
+	 */
+	public double doubleValue() throws NoSuchValueException {
+		return value(Double.class).doubleValue();
+	}
+
+	/**
+	 * @return the value of a boolean annotation property
+	 * @throws NoSuchValueException if the value could not be retrieved or is not a boolean
+	 */
+	public boolean booleanValue() throws NoSuchValueException {
+		return value(Boolean.class).booleanValue();
+	}
+
+	/**
+	 * @return the value of a String annotation property
+	 * @throws NoSuchValueException if the value could not be retrieved or is not a String
+	 */
+	public String stringValue() throws NoSuchValueException {
+		return value(String.class);
+	}
+
+	/**
+	 * @return the value of a Class annotation property
+	 * @throws NoSuchValueException if the value could not be retrieved or is not a Class
+	 */
+	public Class<?> classValue() throws NoSuchValueException {
+		return value(Class.class);
+	}
+
+	/**
+	 * @return the number of elements in an array annotation property
+	 * @throws NoSuchValueException if the value could not be retrieved or is not an array
+	 */
+	public int length() throws NoSuchValueException {
+		Object result = read();
+		if (!result.getClass().isArray()) {
+			Throw.Always().NoSuchValue(name() + " is not an array");
+		}
+		return Array.getLength(result);
+	}
+
+	/**
+	 * @param index position in the array
+	 * @return an element of an int[] annotation property
+	 * @throws NoSuchValueException if the value could not be retrieved or is not an int[]
+	 */
+	public int intValue(int index) throws NoSuchValueException {
+		return read(int[].class)[index];
+	}
+
+	/**
+	 * @param index position in the array
+	 * @return an element of a long[] annotation property
+	 * @throws NoSuchValueException if the value could not be retrieved or is not a long[]
+	 */
+	public long longValue(int index) throws NoSuchValueException {
+		return read(long[].class)[index];
+	}
+
+	/**
+	 * @param index position in the array
+	 * @return an element of a double[] annotation property
+	 * @throws NoSuchValueException if the value could not be retrieved or is not a double[]
+	 */
+	public double doubleValue(int index) throws NoSuchValueException {
+		return read(double[].class)[index];
+	}
+
+	/**
+	 * @param index position in the array
+	 * @return an element of a boolean[] annotation property
+	 * @throws NoSuchValueException if the value could not be retrieved or is not a boolean[]
+	 */
+	public boolean booleanValue(int index) throws NoSuchValueException {
+		return read(boolean[].class)[index];
+	}
+
+	/**
+	 * @param index position in the array
+	 * @return an element of a String[] annotation property
+	 * @throws NoSuchValueException if the value could not be retrieved or is not a String[]
+	 */
+	public String stringValue(int index) throws NoSuchValueException {
+		return read(String[].class)[index];
+	}
+
+	/**
+	 * @param index position in the array
+	 * @return an element of a Class[] annotation property
+	 * @throws NoSuchValueException if the value could not be retrieved or is not a Class[]
+	 */
+	public Class<?> classValue(int index) throws NoSuchValueException {
+		return read(Class[].class)[index];
+	}
+
+	/**
+	 * A read only view over an array annotation property, without copying it.
+	 * Elements of primitive arrays are boxed as they are read, prefer the indexed accessors for those.
+	 * @return an unmodifiable list view of the array
+	 * @throws NoSuchValueException if the value could not be retrieved or is not an array
+	 */
+	public List<?> values() throws NoSuchValueException {
+		final Object result = read();
+		if (!result.getClass().isArray()) {
+			Throw.Always().NoSuchValue(name() + " is not an array");
+		}
+		if (result instanceof Object[]) {
+			return Collections.unmodifiableList(Arrays.asList((Object[])result));
+		}
+		return new AbstractList<Object>() {
+			@Override
+			public Object get(int index) {
+				return Array.get(result, index);
+			}
+
+			@Override
+			public int size() {
+				return Array.getLength(result);
+			}
+		};
+	}
+
+	private Object read() throws NoSuchValueException {
+		Object result = value;
+		if (result == UNREAD) {
+			try {
+				value = result = method.invoke(annotation);
+			} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+				throw new NoSuchValueException("Value not retrievable for " + method.getName(),e);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the remembered value itself, which is shared with every other reader so an array must not be handed out
+	 */
+	private <T> T read(Class<T> type) throws NoSuchValueException {
+		Object result = read();
+		if (!type.isInstance(result)) {
+			Throw.Always().NoSuchValue(name() + " is not of type " + type.getSimpleName());
 		}
+		return type.cast(result);
 	}
 }
@@ -2,17 +2,19 @@ package org.ttang.fluent.reflection;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Stream;
 
 
 /**
  * A fluent style API for reflecting over Annotations.
  * Use BoundAnnotationProperties to access the actual values.
  * The properties method will convert a declared annotation into a bound annotation.
+ * Filters are applied lazily, in a single pass, when a terminal operation such as annotation() is called.
+ * Each filter returns a new, immutable query, so a partly built query can be kept in a static field and shared between threads.
  * <p>
  * Sample Usage: DeclaredAnnotations.on(MyClass".class.named("Singleton","Immutable").properties()
  * @author ttang
@@ -20,10 +22,16 @@ import java.util.List;
  */
 public class BoundAnnotations implements Iterable<Annotation> {
 
-	private List<Annotation> annotations;
+	private final Selection<Annotation> selection;
+	private final ClassMetadata owner; // the metadata the annotations were read from, which remembers their properties
 
-	private BoundAnnotations(Annotation[] annotations) {
-		this.annotations = Arrays.asList(annotations);
+	private BoundAnnotations(List<Annotation> annotations, ClassMetadata owner) {
+		this(Selection.of(annotations), owner);
+	}
+
+	private BoundAnnotations(Selection<Annotation> selection, ClassMetadata owner) {
+		this.selection = selection;
+		this.owner = owner;
 	}
 
 	/**
@@ -34,7 +42,13 @@ public class BoundAnnotations implements Iterable<Annotation> {
 	 * @return annotations for chaining
 	 */
 	public static BoundAnnotations on(Class<?> annotatedClass) {
-		return new BoundAnnotations(annotatedClass.getDeclaredAnnotations());
+		long start = Instrumentation.start();
+		try {
+			ClassMetadata metadata = MetadataCache.lookup(annotatedClass);
+			return of(metadata.declaredAnnotations(), metadata);
+		} finally {
+			Instrumentation.timed("BoundAnnotations.on", start);
+		}
 	}
 
 	/**
@@ -45,7 +59,53 @@ public class BoundAnnotations implements Iterable<Annotation> {
 	 * @return annotations for chaining
 	 */
 	public static BoundAnnotations on(Method annotatedMethod) {
-		return new BoundAnnotations(annotatedMethod.getAnnotations());
+		long start = Instrumentation.start();
+		try {
+			ClassMetadata metadata = MetadataCache.lookup(annotatedMethod.getDeclaringClass());
+			return of(metadata.annotations(annotatedMethod), metadata);
+		} finally {
+			Instrumentation.timed("BoundAnnotations.on", start);
+		}
+	}
+
+	/**
+	 * Generates a list of the annotations on a class and on its superclasses and interfaces, whether or not they are @Inherited.
+	 * Only the nearest annotation of each type is kept.
+	 * <p>
+	 * Sample Usage: BoundAnnotations.onHierarchy(MyClass.class)
+	 * @param annotatedClass the annotated class
+	 * @return annotations for chaining
+	 */
+	public static BoundAnnotations onHierarchy(Class<?> annotatedClass) {
+		long start = Instrumentation.start();
+		try {
+			ClassMetadata metadata = MetadataCache.lookup(annotatedClass);
+			return of(metadata.hierarchyAnnotations(), metadata);
+		} finally {
+			Instrumentation.timed("BoundAnnotations.onHierarchy", start);
+		}
+	}
+
+	/**
+	 * Generates a list of the annotations on a method and on the superclass and interface methods it overrides.
+	 * Only the nearest annotation of each type is kept.
+	 * <p>
+	 * Sample Usage: BoundAnnotations.onHierarchy(MyMethod)
+	 * @param annotatedMethod the annotated method
+	 * @return annotations for chaining
+	 */
+	public static BoundAnnotations onHierarchy(Method annotatedMethod) {
+		long start = Instrumentation.start();
+		try {
+			ClassMetadata metadata = MetadataCache.lookup(annotatedMethod.getDeclaringClass());
+			return of(metadata.hierarchyAnnotations(annotatedMethod), metadata);
+		} finally {
+			Instrumentation.timed("BoundAnnotations.onHierarchy", start);
+		}
+	}
+
+	/* package */ static BoundAnnotations of(List<Annotation> annotations, ClassMetadata owner) {
+		return new BoundAnnotations(annotations, owner);
 	}
 
 	/**
@@ -56,15 +116,7 @@ public class BoundAnnotations implements Iterable<Annotation> {
 	 * @return annotations for chaining
 	 */
 	public BoundAnnotations named(String... names) {
-		List<Annotation> filteredAnnotations = new ArrayList<Annotation>();
-		for (Annotation annotation : annotations) {
-			if (ArrayUtils.contains(names, annotation.annotationType().getSimpleName())) {
-				filteredAnnotations.add(annotation);
-			}
-		}
-
-		this.annotations = filteredAnnotations;
-		return this;
+		return new BoundAnnotations(selection.where(Filters.annotationsNamed(names)), owner);
 	}
 
 	/**
@@ -76,15 +128,19 @@ public class BoundAnnotations implements Iterable<Annotation> {
 	 */
 	@SafeVarargs
 	public final BoundAnnotations matching(Class<? extends Annotation>... types) {
-		List<Annotation> filteredAnnotations = new ArrayList<Annotation>();
-		for (Annotation annotation : annotations) {
-			if (ArrayUtils.contains(types, annotation.annotationType())) {
-				filteredAnnotations.add(annotation);
-			}
-		}
+		return new BoundAnnotations(selection.where(Filters.annotationsMatching(types)), owner);
+	}
 
-		this.annotations = filteredAnnotations;
-		return this;
+	/**
+	 * Filters the list to annotations of the types, or annotations which are themselves annotated with one of the types, however indirectly
+	 * <p>
+	 * Sample Usage: BoundAnnotations.on(MyClass.class).metaMatching(OnEvent.class)
+	 * @param types the annotations, or meta-annotations, to look for
+	 * @return annotations for chaining
+	 */
+	@SafeVarargs
+	public final BoundAnnotations metaMatching(Class<? extends Annotation>... types) {
+		return new BoundAnnotations(selection.where(Filters.annotationsMetaMatching(types.clone())), owner);
 	}
 
 	/**
@@ -93,7 +149,7 @@ public class BoundAnnotations implements Iterable<Annotation> {
 	 * @throws NoSuchPropertyException unless exactly one annotation in the list
 	 */
 	public BoundAnnotations exactlyOne() throws NoSuchPropertyException { 
-		Throw.Unless(annotations.size()==1).NoSuchProperty("Expected exactly one annotation. Found " + annotations.size());
+		only();
 		return this;
 	}
 
@@ -103,7 +159,20 @@ public class BoundAnnotations implements Iterable<Annotation> {
 	 * @throws NoSuchPropertyException unless there is exactly one annotation in the list
 	 */
 	public Annotation annotation() throws NoSuchPropertyException {
-		return exactlyOne().annotations.get(0);
+		long start = Instrumentation.start();
+		try {
+			return only();
+		} finally {
+			Instrumentation.timed("BoundAnnotations.annotation", start);
+		}
+	}
+
+	/**
+	 * The non throwing form of annotation(), for probing for optional annotations
+	 * @return Java Annotation, or null unless there is exactly one annotation in the list
+	 */
+	public Annotation findOne() {
+		return selection.only();
 	}
 
 	/**
@@ -111,21 +180,62 @@ public class BoundAnnotations implements Iterable<Annotation> {
 	 * @return an unmodifiable Java List<Annotation>
 	 */
 	public List<Annotation> annotations() {
-		return Collections.unmodifiableList(annotations);
+		return Collections.unmodifiableList(selection.list());
 	}
 
 
 	/**
-	 * Convert the single annotation into BoundAnnotationProperties
+	 * Convert the single annotation into BoundAnnotationProperties.
+	 * The properties are remembered with the annotated class, so their values are only read once however often this is asked.
 	 * @return BoundAnnotationProperties for further processing
 	 * @throws NoSuchPropertyException unless there is exactly one annotation in the list
 	 */
 	public BoundAnnotationProperties properties() throws NoSuchPropertyException {
-		return BoundAnnotationProperties.of(this.annotation());
+		return owner.properties(this.annotation());
+	}
+
+	/**
+	 * Reads every property of the single annotation into a flat, immutable value object which can be kept and shared between threads
+	 * <p>
+	 * Sample Usage: BoundAnnotations.on(MyClass.class).matching(Threading.class).values()
+	 * @return the property values
+	 * @throws NoSuchPropertyException unless there is exactly one annotation in the list
+	 * @throws NoSuchValueException if a value could not be read
+	 */
+	public AnnotationValues values() throws NoSuchPropertyException, NoSuchValueException {
+		return AnnotationValues.of(this.annotation());
 	}
 
 	@Override
 	public Iterator<Annotation> iterator() {
-		return Collections.unmodifiableList(annotations).iterator();
+		return selection.iterator();
+	}
+
+	@Override
+	public Spliterator<Annotation> spliterator() {
+		return selection.spliterator();
+	}
+
+	/**
+	 * @return a sequential stream of the annotations in the list
+	 */
+	public Stream<Annotation> stream() {
+		return selection.stream(false);
+	}
+
+	/**
+	 * The list is split by index rather than copied, so large lists can be filtered and mapped in parallel
+	 * @return a parallel stream of the annotations in the list
+	 */
+	public Stream<Annotation> parallelStream() {
+		return selection.stream(true);
+	}
+
+	private Annotation only() throws NoSuchPropertyException {
+		Annotation found = selection.only();
+		if (found == null) {
+			Throw.Always().NoSuchProperty("Expected exactly one annotation. Found " + (selection.limit(1).isEmpty() ? "none" : "more than one"));
+		}
+		return found;
 	}
 }
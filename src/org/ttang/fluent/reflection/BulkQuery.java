@@ -0,0 +1,247 @@
+package org.ttang.fluent.reflection;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a MethodQuery, AnnotationQuery or ClassQuery over many classes at once, spreading the classes over an executor.
+ * The queries are immutable and remember their results per class, so they are safe to share between the worker threads.
+ * <p>
+ * The classes are split into batches, and no more than parallelism() batches are ever in flight,
+ * whatever the executor, so reflecting over classes which are still loading cannot tie up every thread on class loading locks.
+ * Results are handed to a Receiver as each class is finished, rather than once the whole run is done.
+ * Without an executor a pool of parallelism() threads is created for the run and shut down afterwards.
+ * <p>
+ * Sample usage:
+ *		static final MethodQuery HANDLERS = MethodQuery.create().annotatedWith(OnEvent.class);
+ *
+ *		Map<Class<?>, List<Method>> handlers = BulkQuery.over(classes).parallelism(8).methods(HANDLERS);
+ * @author ttang
+ *
+ */
+public class BulkQuery {
+	private static final int BATCHES_PER_THREAD = 8;
+	private static final int MAXIMUM_BATCH = 256;
+	private static final ThreadFactory DAEMON_THREADS = new ThreadFactory() {
+		private final ThreadFactory threads = Executors.defaultThreadFactory();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = threads.newThread(runnable);
+			thread.setDaemon(true);
+			thread.setName("fluent-reflection-bulk-" + thread.getName());
+			return thread;
+		}
+	};
+
+	private final List<Class<?>> classes;
+	private Executor executor;
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	private BulkQuery(List<Class<?>> classes) {
+		this.classes = classes;
+	}
+
+	/**
+	 * Receives the results of a bulk query for each class as it is finished.
+	 * It is called from the worker threads, possibly at the same time, so it must be thread safe.
+	 */
+	public interface Receiver<T> {
+		void receive(Class<?> type, List<T> results);
+	}
+
+	/**
+	 * @param classes the classes to run queries over
+	 * @return the bulk query for chaining
+	 */
+	public static BulkQuery over(Collection<? extends Class<?>> classes) {
+		return new BulkQuery(new ArrayList<Class<?>>(classes));
+	}
+
+	/**
+	 * Runs the queries on an executor, which is left running afterwards
+	 * @param executor the executor, such as a shared pool or a thread per task executor
+	 * @return the bulk query for chaining
+	 */
+	public BulkQuery using(Executor executor) {
+		this.executor = executor;
+		return this;
+	}
+
+	/**
+	 * Bounds how many batches of classes are worked on at once, the number of cores by default
+	 * @param batches the largest number of batches in flight
+	 * @return the bulk query for chaining
+	 */
+	public BulkQuery parallelism(int batches) {
+		if (batches < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1, not " + batches);
+		}
+		this.parallelism = batches;
+		return this;
+	}
+
+	/**
+	 * @param query the query to apply to each class
+	 * @param receiver receives the selected methods of each class as it is finished, including classes with none
+	 * @throws InterruptedException if interrupted while waiting for the run to finish
+	 */
+	public void methods(final MethodQuery query, Receiver<Method> receiver) throws InterruptedException {
+		run(new Work<Method>() {
+			@Override
+			List<Method> apply(Class<?> type) {
+				return query.from(type).methods();
+			}
+		}, receiver);
+	}
+
+	/**
+	 * @param query the query to apply to each class
+	 * @return the classes with at least one selected method, in the order they were given, with their selected methods
+	 * @throws InterruptedException if interrupted while waiting for the run to finish
+	 */
+	public Map<Class<?>, List<Method>> methods(MethodQuery query) throws InterruptedException {
+		Collecting<Method> collecting = new Collecting<Method>();
+		methods(query, collecting);
+		return collecting.inOrder(classes);
+	}
+
+	/**
+	 * @param query the query to apply to the annotations of each class
+	 * @param receiver receives the selected annotations of each class as it is finished, including classes with none
+	 * @throws InterruptedException if interrupted while waiting for the run to finish
+	 */
+	public void annotations(final AnnotationQuery query, Receiver<Annotation> receiver) throws InterruptedException {
+		run(new Work<Annotation>() {
+			@Override
+			List<Annotation> apply(Class<?> type) {
+				return query.on(type).annotations();
+			}
+		}, receiver);
+	}
+
+	/**
+	 * @param query the query to apply to the annotations of each class
+	 * @return the classes with at least one selected annotation, in the order they were given, with their selected annotations
+	 * @throws InterruptedException if interrupted while waiting for the run to finish
+	 */
+	public Map<Class<?>, List<Annotation>> annotations(AnnotationQuery query) throws InterruptedException {
+		Collecting<Annotation> collecting = new Collecting<Annotation>();
+		annotations(query, collecting);
+		return collecting.inOrder(classes);
+	}
+
+	/**
+	 * @param query the query to apply to the nested classes of each class
+	 * @param receiver receives the selected nested classes of each class as it is finished, including classes with none
+	 * @throws InterruptedException if interrupted while waiting for the run to finish
+	 */
+	public void classes(final ClassQuery query, Receiver<Class<?>> receiver) throws InterruptedException {
+		run(new Work<Class<?>>() {
+			@Override
+			List<Class<?>> apply(Class<?> type) {
+				return query.from(type).types();
+			}
+		}, receiver);
+	}
+
+	/**
+	 * @param query the query to apply to the nested classes of each class
+	 * @return the classes with at least one selected nested class, in the order they were given, with their selected nested classes
+	 * @throws InterruptedException if interrupted while waiting for the run to finish
+	 */
+	public Map<Class<?>, List<Class<?>>> classes(ClassQuery query) throws InterruptedException {
+		Collecting<Class<?>> collecting = new Collecting<Class<?>>();
+		classes(query, collecting);
+		return collecting.inOrder(classes);
+	}
+
+	private abstract static class Work<T> {
+		abstract List<T> apply(Class<?> type);
+	}
+
+	private static class Collecting<T> implements Receiver<T> {
+		private final Map<Class<?>, List<T>> results = new ConcurrentHashMap<Class<?>, List<T>>();
+
+		@Override
+		public void receive(Class<?> type, List<T> found) {
+			if (!found.isEmpty()) {
+				results.put(type, found);
+			}
+		}
+
+		private Map<Class<?>, List<T>> inOrder(List<Class<?>> classes) {
+			Map<Class<?>, List<T>> ordered = new LinkedHashMap<Class<?>, List<T>>();
+			for (Class<?> type : classes) {
+				List<T> found = results.get(type);
+				if (found != null) {
+					ordered.put(type, found);
+				}
+			}
+			return ordered;
+		}
+	}
+
+	/**
+	 * Submits the batches, waiting for a permit before each, then waits for every permit to come back.
+	 * The first failure, from a query or the receiver, stops further batches being submitted and is rethrown.
+	 */
+	private <T> void run(final Work<T> work, final Receiver<T> receiver) throws InterruptedException {
+		final Semaphore permits = new Semaphore(parallelism);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		ExecutorService pool = executor == null ? Executors.newFixedThreadPool(parallelism, DAEMON_THREADS) : null;
+		Executor running = pool != null ? pool : executor;
+		int batch = Math.max(1, Math.min(MAXIMUM_BATCH, classes.size() / (parallelism * BATCHES_PER_THREAD)));
+		try {
+			for (int start = 0; start < classes.size() && failure.get() == null; start += batch) {
+				final List<Class<?>> batchClasses = classes.subList(start, Math.min(start + batch, classes.size()));
+				permits.acquire();
+				try {
+					running.execute(new Runnable() {
+						@Override
+						public void run() {
+							try {
+								for (int i = 0; i < batchClasses.size() && failure.get() == null; i++) {
+									Class<?> type = batchClasses.get(i);
+									receiver.receive(type, work.apply(type));
+								}
+							} catch (Throwable e) {
+								failure.compareAndSet(null, e);
+							} finally {
+								permits.release();
+							}
+						}
+					});
+				} catch (RuntimeException e) {
+					permits.release(); // rejected by the executor
+					throw e;
+				}
+			}
+			permits.acquire(parallelism);
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
+		}
+
+		Throwable thrown = failure.get();
+		if (thrown instanceof Error) {
+			throw (Error)thrown;
+		}
+		if (thrown != null) {
+			throw thrown instanceof RuntimeException ? (RuntimeException)thrown : new IllegalStateException(thrown);
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package org.ttang.fluent.reflection;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * A class read straight from its class file, rather than loaded.
+ * Names, methods and runtime visible annotations are all available without loading the class,
+ * it is only loaded when type() or ClassFileMethod.method() asks for the real thing.
+ * <p>
+ * Sample usage:
+ *		ClassFile classFile = ClassFile.read(in, getClass().getClassLoader());
+ *		String path = classFile.annotations().named("Path").properties().named("value").stringValue();
+ * @author ttang
+ *
+ */
+public class ClassFile {
+	private static final int ACC_INTERFACE = 0x0200;
+	private static final int ACC_ANNOTATION = 0x2000;
+
+	private final ClassFileContext context;
+	private final int access;
+	private final String name;
+	private final String superName;
+	private final List<String> interfaceNames;
+	private final List<ClassFileMethod> methods;
+	private final List<ClassFileAnnotation> annotations;
+
+	/* package */ ClassFile(ClassFileContext context, int access, String name, String superName,
+			List<String> interfaceNames, List<ClassFileMethod> methods, List<ClassFileAnnotation> annotations) {
+		this.context = context;
+		this.access = access;
+		this.name = name;
+		this.superName = superName;
+		this.interfaceNames = interfaceNames;
+		this.methods = methods;
+		this.annotations = annotations;
+	}
+
+	/**
+	 * Reads a class file, without loading the class
+	 * @param bytes the class file, from its position to its limit, which is not changed
+	 * @param loader the loader used if the class is later loaded, and to read annotation declarations
+	 * @return the class file for chaining
+	 * @throws ClassFormatError if bytes is not a class file
+	 */
+	public static ClassFile read(ByteBuffer bytes, ClassLoader loader) {
+		return ClassFileParser.parse(bytes, new ClassFileContext(loader));
+	}
+
+	/**
+	 * Reads a class file, without loading the class
+	 * @param in the class file, which is not closed
+	 * @param loader the loader used if the class is later loaded, and to read annotation declarations
+	 * @return the class file for chaining
+	 * @throws IOException if in cannot be read
+	 * @throws ClassFormatError if in is not a class file
+	 */
+	public static ClassFile read(InputStream in, ClassLoader loader) throws IOException {
+		return read(ByteBuffer.wrap(readAll(in)), loader);
+	}
+
+	/**
+	 * @return the binary name of the class, as Class.getName() would give it
+	 */
+	public String name() {
+		return name;
+	}
+
+	/**
+	 * @return the name of the class without its package, nested classes keep their enclosing class name and '$'
+	 */
+	public String simpleName() {
+		return name.substring(name.lastIndexOf('.') + 1);
+	}
+
+	/**
+	 * @return the binary name of the super class, or null for java.lang.Object
+	 */
+	public String superName() {
+		return superName;
+	}
+
+	/**
+	 * @return the binary names of the directly implemented interfaces
+	 */
+	public List<String> interfaceNames() {
+		return interfaceNames;
+	}
+
+	/**
+	 * @return true if the class is an interface, annotations included
+	 */
+	public boolean isInterface() {
+		return (access & ACC_INTERFACE) != 0;
+	}
+
+	/**
+	 * @return true if the class is an annotation
+	 */
+	public boolean isAnnotation() {
+		return (access & ACC_ANNOTATION) != 0;
+	}
+
+	/**
+	 * @return the runtime visible annotations on the class for chaining
+	 */
+	public ClassFileAnnotations annotations() {
+		return ClassFileAnnotations.of(annotations);
+	}
+
+	/**
+	 * @return the methods declared by the class, without constructors and static initializers, for chaining
+	 */
+	public ClassFileMethods methods() {
+		return ClassFileMethods.of(methods);
+	}
+
+	/**
+	 * Loads the class, without initializing it
+	 * @return the Java class
+	 * @throws ClassNotFoundException if the loader cannot load the class
+	 */
+	public Class<?> type() throws ClassNotFoundException {
+		return context.load(name);
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	/* package */ static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(in.available(), 1024));
+		byte[] buffer = new byte[8192];
+		for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+}
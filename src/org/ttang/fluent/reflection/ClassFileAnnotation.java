@@ -0,0 +1,107 @@
+package org.ttang.fluent.reflection;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An annotation read from a class file, without loading either the annotated class or the annotation.
+ * Property types and defaults come from the class file of the annotation, read through the class loader's resources.
+ * @author ttang
+ *
+ */
+public class ClassFileAnnotation {
+	private final ClassFileContext context;
+	private final String typeName;
+	private final List<String> names;
+	private final List<Object> values;
+	private final List<String> typeNames; // the property types when they are known up front, defaults are then among the values
+	private volatile List<ClassFileAnnotationProperty> properties;
+
+	/* package */ ClassFileAnnotation(ClassFileContext context, String typeName, List<String> names, List<Object> values) {
+		this(context, typeName, names, values, null);
+	}
+
+	/* package */ ClassFileAnnotation(ClassFileContext context, String typeName, List<String> names, List<Object> values, List<String> typeNames) {
+		this.context = context;
+		this.typeName = typeName;
+		this.names = names;
+		this.values = values;
+		this.typeNames = typeNames;
+	}
+
+	/**
+	 * @return the binary name of the annotation type
+	 */
+	public String typeName() {
+		return typeName;
+	}
+
+	/**
+	 * @return the name of the annotation type without its package, nested annotations keep their enclosing class name and '$'
+	 */
+	public String simpleName() {
+		return typeName.substring(typeName.lastIndexOf('.') + 1);
+	}
+
+	/**
+	 * The properties of the annotation, including those left to their defaults
+	 * @return properties for chaining
+	 */
+	public ClassFileAnnotationProperties properties() {
+		return ClassFileAnnotationProperties.of(propertyList());
+	}
+
+	/**
+	 * Loads the annotation type, without initializing it
+	 * @return the Java annotation class
+	 * @throws ClassNotFoundException unless the loader can load the type and it is an annotation
+	 */
+	@SuppressWarnings("unchecked")
+	public Class<? extends Annotation> annotationType() throws ClassNotFoundException {
+		Class<?> type = context.load(typeName);
+		if (!type.isAnnotation()) {
+			Throw.Always().ClassNotFound(typeName + " is not an annotation");
+		}
+		return (Class<? extends Annotation>)type;
+	}
+
+	@Override
+	public String toString() {
+		return "@" + typeName;
+	}
+
+	private List<ClassFileAnnotationProperty> propertyList() {
+		List<ClassFileAnnotationProperty> result = properties;
+		if (result == null) {
+			properties = result = Collections.unmodifiableList(readProperties());
+		}
+		return result;
+	}
+
+	private List<ClassFileAnnotationProperty> readProperties() {
+		List<ClassFileAnnotationProperty> result = new ArrayList<ClassFileAnnotationProperty>();
+		if (typeNames != null) {
+			for (int i = 0; i < names.size(); i++) {
+				result.add(new ClassFileAnnotationProperty(context, names.get(i), typeNames.get(i), values.get(i)));
+			}
+			return result;
+		}
+
+		ClassFile declaration = context.declaration(typeName);
+		if (declaration == null) { // only the explicit values are known, their types are inferred from the values
+			for (int i = 0; i < names.size(); i++) {
+				result.add(new ClassFileAnnotationProperty(context, names.get(i), null, values.get(i)));
+			}
+			return result;
+		}
+
+		for (ClassFileMethod member : declaration.methods()) {
+			int position = names.indexOf(member.name());
+			Object value = position >= 0 ? values.get(position) : member.defaultValue();
+			result.add(new ClassFileAnnotationProperty(context, member.name(), member.returnTypeName(), value));
+		}
+		return result;
+	}
+}
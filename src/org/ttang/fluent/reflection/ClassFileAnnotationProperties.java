@@ -0,0 +1,54 @@
+package org.ttang.fluent.reflection;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A fluent api over the properties of an annotation read from a class file, the counterpart of BoundAnnotationProperties
+ * @author ttang
+ *
+ */
+public class ClassFileAnnotationProperties implements Iterable<ClassFileAnnotationProperty> {
+	private final List<ClassFileAnnotationProperty> properties;
+
+	private ClassFileAnnotationProperties(List<ClassFileAnnotationProperty> properties) {
+		this.properties = properties;
+	}
+
+	/* package */ static ClassFileAnnotationProperties of(List<ClassFileAnnotationProperty> properties) {
+		return new ClassFileAnnotationProperties(properties);
+	}
+
+	/**
+	 * Fetch the ClassFileAnnotationProperty named by name
+	 * @param name
+	 * @return ClassFileAnnotationProperty for fluent chaining
+	 * @throws NoSuchPropertyException if there is no value called name
+	 */
+	public ClassFileAnnotationProperty named(String name) throws NoSuchPropertyException {
+		ClassFileAnnotationProperty property = find(name);
+		if (property == null) {
+			Throw.Always().NoSuchProperty(name + " was not found");
+		}
+		return property;
+	}
+
+	/**
+	 * Fetch the ClassFileAnnotationProperty named by name, without throwing if there is none
+	 * @param name
+	 * @return ClassFileAnnotationProperty, or null if there is no value called name
+	 */
+	public ClassFileAnnotationProperty find(String name) {
+		for (ClassFileAnnotationProperty property : properties) { // annotations have few properties, a scan beats an index
+			if (property.name().equals(name)) {
+				return property;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Iterator<ClassFileAnnotationProperty> iterator() {
+		return properties.iterator();
+	}
+}
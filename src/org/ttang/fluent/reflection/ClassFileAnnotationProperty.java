@@ -0,0 +1,183 @@
+package org.ttang.fluent.reflection;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single property of an annotation read from a class file.
+ * Values are the constants stored in the class file: primitives are boxed, Strings are Strings,
+ * enum constants are given by name, classes by binary name, nested annotations as ClassFileAnnotation and arrays as an unmodifiable List.
+ * Nothing is loaded unless type() or classValue() asks for it.
+ * @author ttang
+ *
+ */
+public class ClassFileAnnotationProperty {
+	private static final Map<Class<?>, String> primitiveNames = new HashMap<Class<?>, String>();
+
+	static {
+		Class<?>[] boxes = { Boolean.class, Byte.class, Character.class, Short.class, Integer.class, Long.class, Float.class, Double.class };
+		Class<?>[] primitives = { boolean.class, byte.class, char.class, short.class, int.class, long.class, float.class, double.class };
+		for (int i = 0; i < boxes.length; i++) {
+			primitiveNames.put(boxes[i], primitives[i].getName());
+		}
+	}
+
+	private final ClassFileContext context;
+	private final String name;
+	private final String typeName;
+	private final Object value;
+
+	/* package */ ClassFileAnnotationProperty(ClassFileContext context, String name, String typeName, Object value) {
+		this.context = context;
+		this.name = name;
+		this.typeName = typeName;
+		this.value = value;
+	}
+
+	/**
+	 * name of the annotation property
+	 * @return annotation property name
+	 */
+	public String name() {
+		return name;
+	}
+
+	/**
+	 * The declared type of the property, as Class.getName() would give it.
+	 * When the class file of the annotation cannot be read, the type is inferred from the value,
+	 * which cannot tell Strings, enums and classes apart.
+	 * @return annotation property type name
+	 */
+	public String typeName() {
+		if (typeName != null) {
+			return typeName;
+		}
+		if (value instanceof ClassFileAnnotation) {
+			return ((ClassFileAnnotation)value).typeName();
+		}
+		if (value instanceof List) {
+			return Object[].class.getName();
+		}
+		String primitiveName = primitiveNames.get(value.getClass());
+		return primitiveName != null ? primitiveName : value.getClass().getName();
+	}
+
+	/**
+	 * Loads the type of the annotation property, without initializing it
+	 * @return annotation property type
+	 * @throws ClassNotFoundException if the type cannot be loaded
+	 */
+	public Class<?> type() throws ClassNotFoundException {
+		return context.load(typeName());
+	}
+
+	/**
+	 * value of the annotation property, explicit or default, as stored in the class file
+	 * @return annotation property value
+	 * @throws NoSuchValueException if the property has neither an explicit nor a default value
+	 */
+	public Object value() throws NoSuchValueException {
+		if (value == null) {
+			Throw.Always().NoSuchValue(name + " has no value");
+		}
+		return value;
+	}
+
+	/**
+	 * value of the annotation property as a specific type
+	 * @param type the expected type of the value, such as String.class or List.class
+	 * @return annotation property value
+	 * @throws NoSuchValueException if there is no value or it is not of type
+	 */
+	public <T> T value(Class<T> type) throws NoSuchValueException {
+		Object result = value();
+		if (!type.isInstance(result)) {
+			Throw.Always().NoSuchValue(name + " is not of type " + type.getSimpleName());
+		}
+		return type.cast(result);
+	}
+
+	/**
+	 * @return the value of an int annotation property
+	 * @throws NoSuchValueException if there is no value or it is not an int
+	 */
+	public int intValue() throws NoSuchValueException {
+		return value(Integer.class).intValue();
+	}
+
+	/**
+	 * @return the value of a long annotation property
+	 * @throws NoSuchValueException if there is no value or it is not a long
+	 */
+	public long longValue() throws NoSuchValueException {
+		return value(Long.class).longValue();
+	}
+
+	/**
+	 * @return the value of a double annotation property
+	 * @throws NoSuchValueException if there is no value or it is not a double
+	 */
+	public double doubleValue() throws NoSuchValueException {
+		return value(Double.class).doubleValue();
+	}
+
+	/**
+	 * @return the value of a boolean annotation property
+	 * @throws NoSuchValueException if there is no value or it is not a boolean
+	 */
+	public boolean booleanValue() throws NoSuchValueException {
+		return value(Boolean.class).booleanValue();
+	}
+
+	/**
+	 * @return the value of a String annotation property, the constant name of an enum property or the binary name of a Class property
+	 * @throws NoSuchValueException if there is no value or it is not one of those
+	 */
+	public String stringValue() throws NoSuchValueException {
+		return value(String.class);
+	}
+
+	/**
+	 * Loads the class named by a Class annotation property, without initializing it
+	 * @return the value of a Class annotation property
+	 * @throws NoSuchValueException if there is no value or it is not a class name
+	 * @throws ClassNotFoundException if the class cannot be loaded
+	 */
+	public Class<?> classValue() throws NoSuchValueException, ClassNotFoundException {
+		return context.load(stringValue());
+	}
+
+	/**
+	 * @return the value of a nested annotation property
+	 * @throws NoSuchValueException if there is no value or it is not an annotation
+	 */
+	public ClassFileAnnotation annotationValue() throws NoSuchValueException {
+		return value(ClassFileAnnotation.class);
+	}
+
+	/**
+	 * @return the number of elements in an array annotation property
+	 * @throws NoSuchValueException if there is no value or it is not an array
+	 */
+	public int length() throws NoSuchValueException {
+		return values().size();
+	}
+
+	/**
+	 * @return the elements of an array annotation property, as an unmodifiable list
+	 * @throws NoSuchValueException if there is no value or it is not an array
+	 */
+	public List<?> values() throws NoSuchValueException {
+		Object result = value();
+		if (!(result instanceof List)) {
+			Throw.Always().NoSuchValue(name + " is not an array");
+		}
+		return (List<?>)result;
+	}
+
+	@Override
+	public String toString() {
+		return name + "=" + value;
+	}
+}
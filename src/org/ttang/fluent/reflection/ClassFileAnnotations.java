@@ -0,0 +1,139 @@
+package org.ttang.fluent.reflection;
+
+import java.lang.annotation.Annotation;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+
+/**
+ * A fluent style API over the annotations read from a class file, the counterpart of BoundAnnotations
+ * which matches annotations by name, so neither the annotated class nor the annotations are loaded.
+ * <p>
+ * Sample Usage: classFile.annotations().named("Singleton").properties().named("lazy").booleanValue()
+ * @author ttang
+ *
+ */
+public class ClassFileAnnotations implements Iterable<ClassFileAnnotation> {
+
+	private final Selection<ClassFileAnnotation> selection;
+
+	private ClassFileAnnotations(List<ClassFileAnnotation> annotations) {
+		this(Selection.of(annotations));
+	}
+
+	private ClassFileAnnotations(Selection<ClassFileAnnotation> selection) {
+		this.selection = selection;
+	}
+
+	/* package */ static ClassFileAnnotations of(List<ClassFileAnnotation> annotations) {
+		return new ClassFileAnnotations(annotations);
+	}
+
+	/**
+	 * Filters the annotations to only contain names
+	 * @param names simple names, such as "Singleton"
+	 * @return annotations for chaining
+	 */
+	public ClassFileAnnotations named(String... names) {
+		return new ClassFileAnnotations(selection.where(Filters.classFileAnnotationsNamed(names)));
+	}
+
+	/**
+	 * Filters the list to only contain specific annotation types
+	 * @param typeNames binary names, such as "com.example.Singleton"
+	 * @return annotations for chaining
+	 */
+	public ClassFileAnnotations matching(String... typeNames) {
+		return new ClassFileAnnotations(selection.where(Filters.classFileAnnotationsMatching(typeNames)));
+	}
+
+	/**
+	 * Filters the list to only contain specific annotation types, compared by name
+	 * @param types for filtering with
+	 * @return annotations for chaining
+	 */
+	@SafeVarargs
+	public final ClassFileAnnotations matching(Class<? extends Annotation>... types) {
+		String[] typeNames = new String[types.length];
+		for (int i = 0; i < types.length; i++) {
+			typeNames[i] = types[i].getName();
+		}
+		return matching(typeNames);
+	}
+
+	/**
+	 * Ensure only one annotation in the list
+	 * @return annotations for chaining
+	 * @throws NoSuchPropertyException unless exactly one annotation in the list
+	 */
+	public ClassFileAnnotations exactlyOne() throws NoSuchPropertyException {
+		only();
+		return this;
+	}
+
+	/**
+	 * @return the single annotation in the list
+	 * @throws NoSuchPropertyException unless there is exactly one annotation in the list
+	 */
+	public ClassFileAnnotation annotation() throws NoSuchPropertyException {
+		return only();
+	}
+
+	/**
+	 * The non throwing form of annotation(), for probing for optional annotations
+	 * @return the annotation, or null unless there is exactly one annotation in the list
+	 */
+	public ClassFileAnnotation findOne() {
+		return selection.only();
+	}
+
+	/**
+	 * @return an unmodifiable list of the annotations
+	 */
+	public List<ClassFileAnnotation> annotations() {
+		return Collections.unmodifiableList(selection.list());
+	}
+
+	/**
+	 * @return the properties of the single annotation for chaining
+	 * @throws NoSuchPropertyException unless there is exactly one annotation in the list
+	 */
+	public ClassFileAnnotationProperties properties() throws NoSuchPropertyException {
+		return annotation().properties();
+	}
+
+	@Override
+	public Iterator<ClassFileAnnotation> iterator() {
+		return selection.iterator();
+	}
+
+	@Override
+	public Spliterator<ClassFileAnnotation> spliterator() {
+		return selection.spliterator();
+	}
+
+	/**
+	 * @return a sequential stream of the annotations in the list
+	 */
+	public Stream<ClassFileAnnotation> stream() {
+		return selection.stream(false);
+	}
+
+	/**
+	 * The list is split by index rather than copied, so large lists can be filtered and mapped in parallel
+	 * @return a parallel stream of the annotations in the list
+	 */
+	public Stream<ClassFileAnnotation> parallelStream() {
+		return selection.stream(true);
+	}
+
+	private ClassFileAnnotation only() throws NoSuchPropertyException {
+		ClassFileAnnotation found = selection.only();
+		if (found == null) {
+			Throw.Always().NoSuchProperty("Expected exactly one annotation. Found " + (selection.limit(1).isEmpty() ? "none" : "more than one"));
+		}
+		return found;
+	}
+}
@@ -0,0 +1,62 @@
+package org.ttang.fluent.reflection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * What the class files read together share: the loader which loads them on demand,
+ * and the annotation declarations read from the loader's resources, which give property types and defaults.
+ * @author ttang
+ *
+ */
+/* package */ class ClassFileContext {
+	private static final ClassFile UNREADABLE = new ClassFile(null, 0, "", null, null, null, null);
+
+	private final ClassLoader loader;
+	private final ConcurrentMap<String, ClassFile> declarations = new ConcurrentHashMap<String, ClassFile>();
+
+	/* package */ ClassFileContext(ClassLoader loader) {
+		this.loader = loader != null ? loader : ClassLoader.getSystemClassLoader();
+	}
+
+	/* package */ ClassLoader loader() {
+		return loader;
+	}
+
+	/**
+	 * @param typeName such as "java.lang.String" or "int"
+	 * @return the type, loaded but not initialized
+	 * @throws ClassNotFoundException if the loader cannot load the type
+	 */
+	/* package */ Class<?> load(String typeName) throws ClassNotFoundException {
+		return Descriptors.load(typeName, loader);
+	}
+
+	/**
+	 * Reads the class file of an annotation, without loading it, remembering the result
+	 * @param typeName the annotation type
+	 * @return the class file, or null if the loader cannot find it
+	 */
+	/* package */ ClassFile declaration(String typeName) {
+		ClassFile declaration = declarations.get(typeName);
+		if (declaration == null) {
+			declaration = read(typeName);
+			declarations.putIfAbsent(typeName, declaration);
+		}
+		return declaration == UNREADABLE ? null : declaration;
+	}
+
+	private ClassFile read(String typeName) {
+		try (InputStream in = loader.getResourceAsStream(typeName.replace('.', '/') + ".class")) {
+			if (in == null) {
+				return UNREADABLE;
+			}
+			return ClassFileParser.parse(ByteBuffer.wrap(ClassFile.readAll(in)), this);
+		} catch (IOException | ClassFormatError e) {
+			return UNREADABLE;
+		}
+	}
+}
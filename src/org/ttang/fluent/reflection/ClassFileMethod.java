@@ -0,0 +1,97 @@
+package org.ttang.fluent.reflection;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * A method read from a class file, without loading the class which declares it.
+ * The declaring class is only loaded when method() asks for the Java Method.
+ * @author ttang
+ *
+ */
+public class ClassFileMethod {
+	private final ClassFileContext context;
+	private final String declaringClassName;
+	private final String name;
+	private final String descriptor;
+	private final List<ClassFileAnnotation> annotations;
+	private final Object defaultValue;
+
+	/* package */ ClassFileMethod(ClassFileContext context, String declaringClassName, String name, String descriptor,
+			List<ClassFileAnnotation> annotations, Object defaultValue) {
+		this.context = context;
+		this.declaringClassName = declaringClassName;
+		this.name = name;
+		this.descriptor = descriptor;
+		this.annotations = annotations;
+		this.defaultValue = defaultValue;
+	}
+
+	/**
+	 * @return the name of the method
+	 */
+	public String name() {
+		return name;
+	}
+
+	/**
+	 * @return the JVM descriptor of the method, such as "(ILjava/lang/String;)V"
+	 */
+	public String descriptor() {
+		return descriptor;
+	}
+
+	/**
+	 * @return the return type name, as Class.getName() would give it
+	 */
+	public String returnTypeName() {
+		return Descriptors.returnTypeName(descriptor);
+	}
+
+	/**
+	 * @return the parameter type names, as Class.getName() would give them
+	 */
+	public List<String> parameterTypeNames() {
+		return Descriptors.parameterTypeNames(descriptor);
+	}
+
+	/**
+	 * @return the binary name of the class declaring the method
+	 */
+	public String declaringClassName() {
+		return declaringClassName;
+	}
+
+	/**
+	 * @return the runtime visible annotations on the method for chaining
+	 */
+	public ClassFileAnnotations annotations() {
+		return ClassFileAnnotations.of(annotations);
+	}
+
+	/**
+	 * Loads the declaring class, without initializing it, and finds the Java Method
+	 * @return the Java Method
+	 * @throws ClassNotFoundException if the declaring class cannot be loaded
+	 * @throws NoSuchMethodException if the loaded class does not declare the method
+	 */
+	public Method method() throws ClassNotFoundException, NoSuchMethodException {
+		Method method = Descriptors.method(context.load(declaringClassName), name, descriptor);
+		if (method == null) {
+			Throw.Always().NoSuchMethod(declaringClassName + "." + name + descriptor + " was not found");
+		}
+		return method;
+	}
+
+	/**
+	 * @return the AnnotationDefault of an annotation property, or null if it has none
+	 */
+	/* package */ Object defaultValue() {
+		return defaultValue;
+	}
+
+	@Override
+	public String toString() {
+		return declaringClassName + "." + name + descriptor;
+	}
+}
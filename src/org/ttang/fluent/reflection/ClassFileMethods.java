@@ -0,0 +1,149 @@
+package org.ttang.fluent.reflection;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+
+/**
+ * A fluent style API over the methods read from a class file, the counterpart of DeclaredMethods
+ * which matches annotations by name, so the declaring class is only loaded by method() or methods().
+ * <p>
+ * Sample usage:
+ *		List<Method> handlers = classFile.methods().annotatedWith(OnEvent.class).methods();
+ * @author ttang
+ *
+ */
+public class ClassFileMethods implements Iterable<ClassFileMethod> {
+
+	private final Selection<ClassFileMethod> selection;
+
+	private ClassFileMethods(List<ClassFileMethod> methods) {
+		this(Selection.of(methods));
+	}
+
+	private ClassFileMethods(Selection<ClassFileMethod> selection) {
+		this.selection = selection;
+	}
+
+	/* package */ static ClassFileMethods of(List<ClassFileMethod> methods) {
+		return new ClassFileMethods(methods);
+	}
+
+	/**
+	 * @param names array of names
+	 * @return methods for chaining
+	 */
+	public ClassFileMethods named(String... names) {
+		return new ClassFileMethods(selection.where(Filters.classFileMethodsNamed(names)));
+	}
+
+	/**
+	 * @param annotationName the binary name of the annotation type, such as "com.example.OnEvent"
+	 * @return methods for chaining
+	 */
+	public ClassFileMethods annotatedWith(String annotationName) {
+		return new ClassFileMethods(selection.where(Filters.classFileMethodsAnnotatedWith(annotationName)));
+	}
+
+	/**
+	 * @param annotationClass the annotation type, compared by name
+	 * @return methods for chaining
+	 */
+	public ClassFileMethods annotatedWith(Class<? extends Annotation> annotationClass) {
+		return annotatedWith(annotationClass.getName());
+	}
+
+	/**
+	 * @return methods for chaining
+	 * @throws NoSuchMethodException unless there is exactly one method in the list
+	 */
+	public ClassFileMethods exactlyOne() throws NoSuchMethodException {
+		only();
+		return this;
+	}
+
+	/**
+	 * @return the single method in the list, still unloaded
+	 * @throws NoSuchMethodException unless there is exactly one method in the list
+	 */
+	public ClassFileMethod classFileMethod() throws NoSuchMethodException {
+		return only();
+	}
+
+	/**
+	 * The non throwing form of classFileMethod(), for probing for optional methods
+	 * @return the method, or null unless there is exactly one method in the list
+	 */
+	public ClassFileMethod findOne() {
+		return selection.only();
+	}
+
+	/**
+	 * @return an unmodifiable list of the methods, still unloaded
+	 */
+	public List<ClassFileMethod> classFileMethods() {
+		return Collections.unmodifiableList(selection.list());
+	}
+
+	/**
+	 * Loads the declaring class of the single method and finds the Java Method
+	 * @return the Java Method
+	 * @throws ClassNotFoundException if the declaring class cannot be loaded
+	 * @throws NoSuchMethodException unless there is exactly one method in the list
+	 */
+	public Method method() throws ClassNotFoundException, NoSuchMethodException {
+		return only().method();
+	}
+
+	/**
+	 * Loads the declaring classes of the methods and finds the Java Methods
+	 * @return an unmodifiable list of Java Methods
+	 * @throws ClassNotFoundException if a declaring class cannot be loaded
+	 * @throws NoSuchMethodException if a loaded class does not declare its method
+	 */
+	public List<Method> methods() throws ClassNotFoundException, NoSuchMethodException {
+		List<Method> methods = new ArrayList<Method>();
+		for (ClassFileMethod method : selection) {
+			methods.add(method.method());
+		}
+		return Collections.unmodifiableList(methods);
+	}
+
+	@Override
+	public Iterator<ClassFileMethod> iterator() {
+		return selection.iterator();
+	}
+
+	@Override
+	public Spliterator<ClassFileMethod> spliterator() {
+		return selection.spliterator();
+	}
+
+	/**
+	 * @return a sequential stream of the methods in the list
+	 */
+	public Stream<ClassFileMethod> stream() {
+		return selection.stream(false);
+	}
+
+	/**
+	 * The list is split by index rather than copied, so large lists can be filtered and mapped in parallel
+	 * @return a parallel stream of the methods in the list
+	 */
+	public Stream<ClassFileMethod> parallelStream() {
+		return selection.stream(true);
+	}
+
+	private ClassFileMethod only() throws NoSuchMethodException {
+		ClassFileMethod found = selection.only();
+		if (found == null) {
+			Throw.Always().NoSuchMethod("Expected only one method. Found " + (selection.limit(1).isEmpty() ? "none" : "more than one"));
+		}
+		return found;
+	}
+}
@@ -0,0 +1,266 @@
+package org.ttang.fluent.reflection;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A minimal class file parser which reads just the names, method descriptors and runtime visible annotations
+ * of a class, straight from its bytes, so the class need not be loaded.
+ * Constant pool strings are only decoded when they are referenced.
+ * @author ttang
+ *
+ */
+/* package */ class ClassFileParser {
+	private static final int MAGIC = 0xCAFEBABE;
+	private static final String RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations";
+	private static final String ANNOTATION_DEFAULT = "AnnotationDefault";
+
+	private final ByteBuffer bytes;
+	private final int base;
+	private final ClassFileContext context;
+	private int position;
+	private int[] offsets;
+	private String[] strings;
+
+	private ClassFileParser(ByteBuffer bytes, ClassFileContext context) {
+		this.bytes = bytes;
+		this.base = bytes.position();
+		this.context = context;
+	}
+
+	/**
+	 * Parses a class file, the position of bytes is not changed
+	 * @param bytes the class file, from its position to its limit
+	 * @param context used to load the class, and to read annotation declarations, when asked to
+	 * @return the parsed class file
+	 * @throws ClassFormatError if bytes is not a class file
+	 */
+	/* package */ static ClassFile parse(ByteBuffer bytes, ClassFileContext context) {
+		try {
+			return new ClassFileParser(bytes, context).parse();
+		} catch (IndexOutOfBoundsException e) {
+			throw new ClassFormatError("Truncated class file");
+		}
+	}
+
+	private ClassFile parse() {
+		if (u4() != MAGIC) {
+			throw new ClassFormatError("Not a class file");
+		}
+		position += 4; // minor and major version
+		readConstantPool();
+
+		int access = u2();
+		String name = className(u2());
+		int superIndex = u2();
+		String superName = superIndex == 0 ? null : className(superIndex);
+		List<String> interfaceNames = new ArrayList<String>();
+		for (int count = u2(); count > 0; count--) {
+			interfaceNames.add(className(u2()));
+		}
+
+		for (int count = u2(); count > 0; count--) {
+			position += 6; // field access, name and descriptor
+			skipAttributes();
+		}
+
+		List<ClassFileMethod> methods = new ArrayList<ClassFileMethod>();
+		for (int count = u2(); count > 0; count--) {
+			position += 2; // method access
+			String methodName = utf8(u2());
+			String descriptor = utf8(u2());
+			List<ClassFileAnnotation> annotations = Collections.emptyList();
+			Object defaultValue = null;
+			for (int attributes = u2(); attributes > 0; attributes--) {
+				String attribute = utf8(u2());
+				int end = u4() + position;
+				if (attribute.equals(RUNTIME_VISIBLE_ANNOTATIONS)) {
+					annotations = annotations();
+				} else if (attribute.equals(ANNOTATION_DEFAULT)) {
+					defaultValue = elementValue();
+				}
+				position = end;
+			}
+			if (methodName.charAt(0) != '<') { // constructors and static initializers are not methods to reflection
+				methods.add(new ClassFileMethod(context, name, methodName, descriptor, annotations, defaultValue));
+			}
+		}
+
+		List<ClassFileAnnotation> annotations = Collections.emptyList();
+		for (int attributes = u2(); attributes > 0; attributes--) {
+			String attribute = utf8(u2());
+			int end = u4() + position;
+			if (attribute.equals(RUNTIME_VISIBLE_ANNOTATIONS)) {
+				annotations = annotations();
+			}
+			position = end;
+		}
+
+		return new ClassFile(context, access, name, superName, Collections.unmodifiableList(interfaceNames),
+				Collections.unmodifiableList(methods), annotations);
+	}
+
+	private void readConstantPool() {
+		int count = u2();
+		offsets = new int[count];
+		strings = new String[count];
+		for (int i = 1; i < count; i++) {
+			int tag = u1();
+			offsets[i] = position;
+			switch (tag) {
+			case 1: // Utf8
+				int length = u2();
+				position += length;
+				break;
+			case 3: // Integer
+			case 4: // Float
+			case 9: // Fieldref
+			case 10: // Methodref
+			case 11: // InterfaceMethodref
+			case 12: // NameAndType
+			case 17: // Dynamic
+			case 18: // InvokeDynamic
+				position += 4;
+				break;
+			case 5: // Long
+			case 6: // Double
+				position += 8;
+				i++;
+				break;
+			case 7: // Class
+			case 8: // String
+			case 16: // MethodType
+			case 19: // Module
+			case 20: // Package
+				position += 2;
+				break;
+			case 15: // MethodHandle
+				position += 3;
+				break;
+			default:
+				throw new ClassFormatError("Unknown constant pool tag " + tag);
+			}
+		}
+	}
+
+	private List<ClassFileAnnotation> annotations() {
+		List<ClassFileAnnotation> annotations = new ArrayList<ClassFileAnnotation>();
+		for (int count = u2(); count > 0; count--) {
+			annotations.add(annotation());
+		}
+		return Collections.unmodifiableList(annotations);
+	}
+
+	private ClassFileAnnotation annotation() {
+		String typeName = Descriptors.typeName(utf8(u2()));
+		List<String> names = new ArrayList<String>();
+		List<Object> values = new ArrayList<Object>();
+		for (int count = u2(); count > 0; count--) {
+			names.add(utf8(u2()));
+			values.add(elementValue());
+		}
+		return new ClassFileAnnotation(context, typeName, names, values);
+	}
+
+	private Object elementValue() {
+		int tag = u1();
+		switch (tag) {
+		case 'B':
+			return (byte)intConstant(u2());
+		case 'C':
+			return (char)intConstant(u2());
+		case 'S':
+			return (short)intConstant(u2());
+		case 'Z':
+			return intConstant(u2()) != 0;
+		case 'I':
+			return intConstant(u2());
+		case 'J':
+			return bytes.getLong(base + offsets[u2()]);
+		case 'F':
+			return bytes.getFloat(base + offsets[u2()]);
+		case 'D':
+			return bytes.getDouble(base + offsets[u2()]);
+		case 's':
+			return utf8(u2());
+		case 'e':
+			position += 2; // the enum type, which the annotation declaration also gives
+			return utf8(u2());
+		case 'c':
+			return Descriptors.typeName(utf8(u2()));
+		case '@':
+			return annotation();
+		case '[':
+			List<Object> values = new ArrayList<Object>();
+			for (int count = u2(); count > 0; count--) {
+				values.add(elementValue());
+			}
+			return Collections.unmodifiableList(values);
+		default:
+			throw new ClassFormatError("Unknown element value tag " + (char)tag);
+		}
+	}
+
+	private void skipAttributes() {
+		for (int count = u2(); count > 0; count--) {
+			position += 2; // attribute name
+			int length = u4();
+			position += length;
+		}
+	}
+
+	private int intConstant(int index) {
+		return bytes.getInt(base + offsets[index]);
+	}
+
+	private String className(int index) {
+		return utf8(bytes.getShort(base + offsets[index]) & 0xFFFF).replace('/', '.');
+	}
+
+	private String utf8(int index) {
+		String string = strings[index];
+		if (string == null) {
+			strings[index] = string = decode(offsets[index]);
+		}
+		return string;
+	}
+
+	/**
+	 * Decodes the modified UTF-8 used by class files
+	 */
+	private String decode(int offset) {
+		int length = bytes.getShort(base + offset) & 0xFFFF;
+		int from = base + offset + 2;
+		char[] chars = new char[length];
+		int count = 0;
+		for (int i = from; i < from + length; i++) {
+			int b = bytes.get(i) & 0xFF;
+			if (b < 0x80) {
+				chars[count++] = (char)b;
+			} else if ((b & 0xE0) == 0xC0) {
+				chars[count++] = (char)(((b & 0x1F) << 6) | (bytes.get(++i) & 0x3F));
+			} else {
+				chars[count++] = (char)(((b & 0x0F) << 12) | ((bytes.get(++i) & 0x3F) << 6) | (bytes.get(++i) & 0x3F));
+			}
+		}
+		return new String(chars, 0, count);
+	}
+
+	private int u1() {
+		return bytes.get(base + position++) & 0xFF;
+	}
+
+	private int u2() {
+		int value = bytes.getShort(base + position) & 0xFFFF;
+		position += 2;
+		return value;
+	}
+
+	private int u4() {
+		int value = bytes.getInt(base + position);
+		position += 4;
+		return value;
+	}
+}
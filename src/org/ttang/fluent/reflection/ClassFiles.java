@@ -0,0 +1,151 @@
+package org.ttang.fluent.reflection;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+
+/**
+ * A fluent style API over class files, the counterpart of DeclaredClasses
+ * which matches names and annotations straight from the class files, so classes are only loaded by type() or types().
+ * <p>
+ * Sample usage:
+ *		List<Class<?>> services =
+ *		ClassPathScanner
+ *		.of(getClass().getClassLoader())
+ *		.classFiles()
+ *		.annotatedWith(RestService.class)
+ *		.types();
+ * @author ttang
+ *
+ */
+public class ClassFiles implements Iterable<ClassFile> {
+
+	private final Selection<ClassFile> selection;
+
+	private ClassFiles(List<ClassFile> classFiles) {
+		this(Selection.of(classFiles));
+	}
+
+	private ClassFiles(Selection<ClassFile> selection) {
+		this.selection = selection;
+	}
+
+	/* package */ static ClassFiles of(List<ClassFile> classFiles) {
+		return new ClassFiles(classFiles);
+	}
+
+	/**
+	 * @param names simple names, nested classes keep their enclosing class name and '$'
+	 * @return class files for chaining
+	 */
+	public ClassFiles named(String... names) {
+		return new ClassFiles(selection.where(Filters.classFilesNamed(names)));
+	}
+
+	/**
+	 * @param annotationName the binary name of the annotation type, such as "com.example.RestService"
+	 * @return class files for chaining
+	 */
+	public ClassFiles annotatedWith(String annotationName) {
+		return new ClassFiles(selection.where(Filters.classFilesAnnotatedWith(annotationName)));
+	}
+
+	/**
+	 * @param annotationClass the annotation type, compared by name
+	 * @return class files for chaining
+	 */
+	public ClassFiles annotatedWith(Class<? extends Annotation> annotationClass) {
+		return annotatedWith(annotationClass.getName());
+	}
+
+	/**
+	 * @return class files for chaining
+	 * @throws ClassNotFoundException unless there is exactly one class file in the list
+	 */
+	public ClassFiles exactlyOne() throws ClassNotFoundException {
+		only();
+		return this;
+	}
+
+	/**
+	 * @return the single class file in the list, still unloaded
+	 * @throws ClassNotFoundException unless there is exactly one class file in the list
+	 */
+	public ClassFile classFile() throws ClassNotFoundException {
+		return only();
+	}
+
+	/**
+	 * The non throwing form of classFile(), for probing for optional classes
+	 * @return the class file, or null unless there is exactly one class file in the list
+	 */
+	public ClassFile findOne() {
+		return selection.only();
+	}
+
+	/**
+	 * @return an unmodifiable list of the class files, still unloaded
+	 */
+	public List<ClassFile> classFiles() {
+		return Collections.unmodifiableList(selection.list());
+	}
+
+	/**
+	 * Loads the single class, without initializing it
+	 * @return the Java class
+	 * @throws ClassNotFoundException unless there is exactly one class file in the list and its class can be loaded
+	 */
+	public Class<?> type() throws ClassNotFoundException {
+		return only().type();
+	}
+
+	/**
+	 * Loads the classes, without initializing them
+	 * @return an unmodifiable list of Java classes
+	 * @throws ClassNotFoundException if a class cannot be loaded
+	 */
+	public List<Class<?>> types() throws ClassNotFoundException {
+		List<Class<?>> types = new ArrayList<Class<?>>();
+		for (ClassFile classFile : selection) {
+			types.add(classFile.type());
+		}
+		return Collections.unmodifiableList(types);
+	}
+
+	@Override
+	public Iterator<ClassFile> iterator() {
+		return selection.iterator();
+	}
+
+	@Override
+	public Spliterator<ClassFile> spliterator() {
+		return selection.spliterator();
+	}
+
+	/**
+	 * @return a sequential stream of the class files in the list
+	 */
+	public Stream<ClassFile> stream() {
+		return selection.stream(false);
+	}
+
+	/**
+	 * The list is split by index rather than copied, so large lists can be filtered and mapped in parallel
+	 * @return a parallel stream of the class files in the list
+	 */
+	public Stream<ClassFile> parallelStream() {
+		return selection.stream(true);
+	}
+
+	private ClassFile only() throws ClassNotFoundException {
+		ClassFile found = selection.only();
+		if (found == null) {
+			Throw.Always().ClassNotFound("Expected exactly one class. Found " + (selection.limit(1).isEmpty() ? "none" : "more than one"));
+		}
+		return found;
+	}
+}
@@ -0,0 +1,612 @@
+package org.ttang.fluent.reflection;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InaccessibleObjectException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * Immutable snapshots of the methods, constructors, fields, nested classes and annotations of a single class.
+ * Each snapshot is read from the class the first time it is asked for and shared from then on.
+ * The hierarchy snapshots merge the snapshots of the superclass and interfaces, taken from their own ClassMetadata,
+ * so each ancestor is reflected over once however many subclasses it has.
+ * Instances are obtained from the MetadataCache.
+ * @author ttang
+ *
+ */
+/* package */ class ClassMetadata {
+	private final Class<?> type;
+	private volatile List<Method> declaredMethods;
+	private volatile List<Method> methods;
+	private volatile List<Constructor<?>> declaredConstructors;
+	private volatile List<Field> declaredFields;
+	private volatile List<Class<?>> declaredClasses;
+	private volatile List<Annotation> declaredAnnotations;
+	private volatile Map<String, int[]> declaredMethodIndex;
+	private volatile Map<String, int[]> methodIndex;
+	private volatile Map<String, int[]> declaredFieldIndex;
+	private volatile Map<String, int[]> declaredClassIndex;
+	private volatile List<Method> hierarchyMethods;
+	private volatile Map<String, Method> hierarchySignatures;
+	private volatile Map<String, int[]> hierarchyMethodIndex;
+	private volatile List<Annotation> hierarchyAnnotations;
+	private volatile long[] declaredAnnotationBits;
+	private volatile Map<Method, Method> accessibleMethods;
+	private volatile Map<Constructor<?>, Constructor<?>> accessibleConstructors;
+	private volatile Map<Field, Field> accessibleFields;
+	private volatile Selection<Method> accessibleDeclaredMethods;
+	private volatile Selection<Method> accessibleHierarchyMethods;
+	private volatile Selection<Field> accessibleDeclaredFields;
+	private final ConcurrentMap<Method, List<Annotation>> methodAnnotations = new ConcurrentHashMap<Method, List<Annotation>>();
+	private final ConcurrentMap<Method, List<Annotation>> hierarchyMethodAnnotations = new ConcurrentHashMap<Method, List<Annotation>>();
+	private final ConcurrentMap<Method, long[]> methodAnnotationBits = new ConcurrentHashMap<Method, long[]>();
+	private final ConcurrentMap<Method, long[]> hierarchyMethodAnnotationBits = new ConcurrentHashMap<Method, long[]>();
+	private final ConcurrentMap<Annotation, BoundAnnotationProperties> annotationProperties = new ConcurrentHashMap<Annotation, BoundAnnotationProperties>();
+	private final ConcurrentMap<Field, FieldAccessor> fieldAccessors = new ConcurrentHashMap<Field, FieldAccessor>();
+	private final ConcurrentMap<Field, FieldAccessor> accessibleFieldAccessors = new ConcurrentHashMap<Field, FieldAccessor>();
+	private final ConcurrentMap<Method, MethodInvoker> invokers = new ConcurrentHashMap<Method, MethodInvoker>();
+	private final ConcurrentMap<Method, MethodInvoker> accessibleInvokers = new ConcurrentHashMap<Method, MethodInvoker>();
+	private final ConcurrentMap<Constructor<?>, InstanceFactory<?>> factories = new ConcurrentHashMap<Constructor<?>, InstanceFactory<?>>();
+	private final ConcurrentMap<Constructor<?>, InstanceFactory<?>> accessibleFactories = new ConcurrentHashMap<Constructor<?>, InstanceFactory<?>>();
+	private volatile boolean lookedUp; // by an entry point, see MetadataCache.lookup
+
+	/* package */ ClassMetadata(Class<?> type) {
+		this.type = type;
+	}
+
+	/**
+	 * Only written once, so a lookup of a class already looked up is a single read. Racing first lookups may both count as misses.
+	 * @return true the first time it is called
+	 */
+	/* package */ boolean firstLookup() {
+		if (lookedUp) {
+			return false;
+		}
+		lookedUp = true;
+		return true;
+	}
+
+	/**
+	 * @return the methods declared by the class, as getDeclaredMethods()
+	 */
+	/* package */ List<Method> declaredMethods() {
+		List<Method> snapshot = declaredMethods;
+		if (snapshot == null) {
+			declaredMethods = snapshot = snapshot(type.getDeclaredMethods());
+		}
+		return snapshot;
+	}
+
+	/**
+	 * @return the public methods of the class, as getMethods()
+	 */
+	/* package */ List<Method> methods() {
+		List<Method> snapshot = methods;
+		if (snapshot == null) {
+			methods = snapshot = snapshot(type.getMethods());
+		}
+		return snapshot;
+	}
+
+	/**
+	 * @return the constructors declared by the class, as getDeclaredConstructors()
+	 */
+	/* package */ List<Constructor<?>> declaredConstructors() {
+		List<Constructor<?>> snapshot = declaredConstructors;
+		if (snapshot == null) {
+			declaredConstructors = snapshot = snapshot(type.getDeclaredConstructors());
+		}
+		return snapshot;
+	}
+
+	/**
+	 * @return the fields declared by the class, as getDeclaredFields()
+	 */
+	/* package */ List<Field> declaredFields() {
+		List<Field> snapshot = declaredFields;
+		if (snapshot == null) {
+			declaredFields = snapshot = snapshot(type.getDeclaredFields());
+		}
+		return snapshot;
+	}
+
+	/**
+	 * @return the classes declared by the class, as getDeclaredClasses()
+	 */
+	/* package */ List<Class<?>> declaredClasses() {
+		List<Class<?>> snapshot = declaredClasses;
+		if (snapshot == null) {
+			declaredClasses = snapshot = snapshot(type.getDeclaredClasses());
+		}
+		return snapshot;
+	}
+
+	/**
+	 * @return the annotations declared on the class, as getDeclaredAnnotations()
+	 */
+	/* package */ List<Annotation> declaredAnnotations() {
+		List<Annotation> snapshot = declaredAnnotations;
+		if (snapshot == null) {
+			declaredAnnotations = snapshot = snapshot(type.getDeclaredAnnotations());
+		}
+		return snapshot;
+	}
+
+	/**
+	 * @return an index of declaredMethods() by method name
+	 */
+	/* package */ Map<String, int[]> declaredMethodIndex() {
+		Map<String, int[]> index = declaredMethodIndex;
+		if (index == null) {
+			declaredMethodIndex = index = index(NameIndex.METHODS, declaredMethods());
+		}
+		return index;
+	}
+
+	/**
+	 * @return an index of methods() by method name
+	 */
+	/* package */ Map<String, int[]> methodIndex() {
+		Map<String, int[]> index = methodIndex;
+		if (index == null) {
+			methodIndex = index = index(NameIndex.METHODS, methods());
+		}
+		return index;
+	}
+
+	/**
+	 * @return an index of declaredFields() by field name
+	 */
+	/* package */ Map<String, int[]> declaredFieldIndex() {
+		Map<String, int[]> index = declaredFieldIndex;
+		if (index == null) {
+			declaredFieldIndex = index = index(NameIndex.FIELDS, declaredFields());
+		}
+		return index;
+	}
+
+	/**
+	 * @return an index of declaredClasses() by simple name
+	 */
+	/* package */ Map<String, int[]> declaredClassIndex() {
+		Map<String, int[]> index = declaredClassIndex;
+		if (index == null) {
+			declaredClassIndex = index = index(NameIndex.CLASSES, declaredClasses());
+		}
+		return index;
+	}
+
+	/**
+	 * @param method a method declared by the class
+	 * @return the annotations on the method, as getAnnotations()
+	 */
+	/* package */ List<Annotation> annotations(Method method) {
+		List<Annotation> snapshot = methodAnnotations.get(method);
+		if (snapshot == null) {
+			snapshot = snapshot(method.getAnnotations());
+			List<Annotation> existing = methodAnnotations.putIfAbsent(method, snapshot);
+			if (existing != null) {
+				snapshot = existing;
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * @return the bitset of the types of declaredAnnotations(), see AnnotationBits
+	 */
+	/* package */ long[] declaredAnnotationBits() {
+		long[] bits = declaredAnnotationBits;
+		if (bits == null) {
+			declaredAnnotationBits = bits = AnnotationBits.of(declaredAnnotations());
+		}
+		return bits;
+	}
+
+	/**
+	 * @param method a method declared by the class
+	 * @return the bitset of the types of annotations(method), see AnnotationBits
+	 */
+	/* package */ long[] annotationBits(Method method) {
+		long[] bits = methodAnnotationBits.get(method);
+		if (bits == null) {
+			bits = AnnotationBits.of(annotations(method));
+			methodAnnotationBits.putIfAbsent(method, bits);
+		}
+		return bits;
+	}
+
+	/**
+	 * @param method a method declared by the class
+	 * @return the bitset of the types of hierarchyAnnotations(method), see AnnotationBits
+	 */
+	/* package */ long[] hierarchyAnnotationBits(Method method) {
+		long[] bits = hierarchyMethodAnnotationBits.get(method);
+		if (bits == null) {
+			bits = AnnotationBits.of(hierarchyAnnotations(method));
+			hierarchyMethodAnnotationBits.putIfAbsent(method, bits);
+		}
+		return bits;
+	}
+
+	/**
+	 * The properties of an annotation read from this class are kept with the class rather than the annotation type,
+	 * so an annotation type shared between class loaders does not hold on to the classes it annotates.
+	 * Annotations are equal by value, so equal annotations share their properties and the values read from them.
+	 * @param annotation an annotation on the class, its members or its supertypes
+	 * @return the properties of the annotation
+	 */
+	/* package */ BoundAnnotationProperties properties(Annotation annotation) {
+		BoundAnnotationProperties properties = annotationProperties.get(annotation);
+		if (properties == null) {
+			properties = BoundAnnotationProperties.of(annotation);
+			BoundAnnotationProperties existing = annotationProperties.putIfAbsent(annotation, properties);
+			if (existing != null) {
+				properties = existing;
+			}
+		}
+		return properties;
+	}
+
+	/**
+	 * The handles of a field are built once and shared, so they are as cheap to ask for again as the field itself
+	 * @param field a field declared by the class
+	 * @return the accessor for the field
+	 * @throws IllegalAccessException if the field is not accessible, see DeclaredFields.setAccessible
+	 */
+	/* package */ FieldAccessor accessor(Field field) throws IllegalAccessException {
+		// Field.equals does not tell an accessible copy from the shared field, so each has its own accessors
+		ConcurrentMap<Field, FieldAccessor> accessors = isAccessibleCopy(accessibleFields, field) ? accessibleFieldAccessors : fieldAccessors;
+		FieldAccessor accessor = accessors.get(field);
+		if (accessor == null) {
+			accessor = FieldAccessor.from(field);
+			FieldAccessor existing = accessors.putIfAbsent(field, accessor);
+			if (existing != null) {
+				accessor = existing;
+			}
+		}
+		return accessor;
+	}
+
+	/**
+	 * The handle of a method is built once and shared, like the accessor of a field
+	 * @param method a method declared by the class
+	 * @return the unbound invoker for the method
+	 * @throws IllegalAccessException if the method is not accessible, see DeclaredMethods.setAccessible
+	 */
+	/* package */ MethodInvoker invoker(Method method) throws IllegalAccessException {
+		ConcurrentMap<Method, MethodInvoker> invokers = isAccessibleCopy(accessibleMethods, method) ? accessibleInvokers : this.invokers;
+		MethodInvoker invoker = invokers.get(method);
+		if (invoker == null) {
+			invoker = MethodInvoker.from(method);
+			MethodInvoker existing = invokers.putIfAbsent(method, invoker);
+			if (existing != null) {
+				invoker = existing;
+			}
+		}
+		return invoker;
+	}
+
+	/**
+	 * The handle of a constructor is built once and shared, like the accessor of a field
+	 * @param constructor a constructor declared by the class
+	 * @return the factory for the constructor
+	 * @throws IllegalAccessException if the constructor is not accessible, see DeclaredConstructors.setAccessible
+	 */
+	@SuppressWarnings("unchecked")
+	/* package */ <T> InstanceFactory<T> factory(Constructor<T> constructor) throws IllegalAccessException {
+		ConcurrentMap<Constructor<?>, InstanceFactory<?>> factories = isAccessibleCopy(accessibleConstructors, constructor) ? accessibleFactories : this.factories;
+		InstanceFactory<T> factory = (InstanceFactory<T>)factories.get(constructor);
+		if (factory == null) {
+			factory = InstanceFactory.from(constructor);
+			InstanceFactory<T> existing = (InstanceFactory<T>)factories.putIfAbsent(constructor, factory);
+			if (existing != null) {
+				factory = existing;
+			}
+		}
+		return factory;
+	}
+
+	/**
+	 * @return the accessible copies of declaredMethods(), in the same order so its name index still applies
+	 */
+	/* package */ Selection<Method> accessibleDeclaredMethods() {
+		Selection<Method> snapshot = accessibleDeclaredMethods;
+		if (snapshot == null) {
+			accessibleDeclaredMethods = snapshot = accessible(declaredMethods());
+		}
+		return snapshot;
+	}
+
+	/**
+	 * @return the accessible copies of hierarchyMethods(), in the same order so its name index still applies
+	 */
+	/* package */ Selection<Method> accessibleHierarchyMethods() {
+		Selection<Method> snapshot = accessibleHierarchyMethods;
+		if (snapshot == null) {
+			accessibleHierarchyMethods = snapshot = accessible(hierarchyMethods());
+		}
+		return snapshot;
+	}
+
+	/**
+	 * @return the accessible copies of declaredFields(), in the same order so its name index still applies
+	 */
+	/* package */ Selection<Field> accessibleDeclaredFields() {
+		Selection<Field> snapshot = accessibleDeclaredFields;
+		if (snapshot == null) {
+			accessibleDeclaredFields = snapshot = accessible(declaredFields());
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Swaps members for copies with the access checks suppressed. The copies of the members of a class are made once and shared,
+	 * so the members in the snapshots are never made accessible and a query only sees accessible members if it asks for them.
+	 * Members which cannot be made accessible, such as those of a package not opened to this library, are kept as they are,
+	 * and the Selection throws InaccessibleObjectException if one of them is selected, so unfiltered lists which include them can still be narrowed.
+	 * @param members methods, constructors or fields of any class
+	 * @return the accessible copies, in the same order
+	 */
+	/* package */ static <T extends AccessibleObject & Member> Selection<T> accessible(List<T> members) {
+		List<T> copies = new ArrayList<T>(members.size());
+		boolean complete = true;
+		for (T member : members) {
+			T copy = MetadataCache.of(member.getDeclaringClass()).accessible(member);
+			complete &= copy != member;
+			copies.add(copy);
+		}
+		Selection<T> selection = Selection.of(Collections.unmodifiableList(copies));
+		return complete ? selection : selection.checking(REQUIRE_ACCESSIBLE);
+	}
+
+	/**
+	 * Throws InaccessibleObjectException for a member which is not an accessible copy, as AccessibleObject.setAccessible would have
+	 */
+	private static final Consumer<Member> REQUIRE_ACCESSIBLE = new Consumer<Member>() {
+		@Override
+		public void accept(Member member) {
+			ClassMetadata metadata = MetadataCache.of(member.getDeclaringClass());
+			Map<?, ?> copies = member instanceof Method ? metadata.accessibleMethods() : member instanceof Field ? metadata.accessibleFields() : metadata.accessibleConstructors();
+			if (!isAccessibleCopy(copies, member)) {
+				throw new InaccessibleObjectException("Unable to make " + member + " accessible, its package is not open to " + ClassMetadata.class.getModule());
+			}
+		}
+	};
+
+	@SuppressWarnings("unchecked")
+	private <T extends AccessibleObject & Member> T accessible(T member) {
+		Map<?, ?> copies = member instanceof Method ? accessibleMethods() : member instanceof Field ? accessibleFields() : accessibleConstructors();
+		Object copy = copies.get(member);
+		return copy == null ? member : (T)copy;
+	}
+
+	private Map<Method, Method> accessibleMethods() {
+		Map<Method, Method> copies = accessibleMethods;
+		if (copies == null) {
+			accessibleMethods = copies = accessible(type.getDeclaredMethods());
+		}
+		return copies;
+	}
+
+	private Map<Constructor<?>, Constructor<?>> accessibleConstructors() {
+		Map<Constructor<?>, Constructor<?>> copies = accessibleConstructors;
+		if (copies == null) {
+			accessibleConstructors = copies = accessible(type.getDeclaredConstructors());
+		}
+		return copies;
+	}
+
+	private Map<Field, Field> accessibleFields() {
+		Map<Field, Field> copies = accessibleFields;
+		if (copies == null) {
+			accessibleFields = copies = accessible(type.getDeclaredFields());
+		}
+		return copies;
+	}
+
+	/**
+	 * Access is granted to the whole class at once, which checks permission once rather than once per member.
+	 * If that fails for any member, the members are retried one at a time and those which fail again are left out.
+	 * @param members fresh copies of the members, which are not shared with the snapshots
+	 * @return the copies which could be made accessible, keyed by the equal members of the snapshots
+	 */
+	private static <T extends AccessibleObject> Map<T, T> accessible(T[] members) {
+		boolean granted;
+		try {
+			AccessibleObject.setAccessible(members, true);
+			granted = true;
+		} catch (InaccessibleObjectException | SecurityException e) {
+			granted = false;
+		}
+
+		Map<T, T> copies = new HashMap<T, T>();
+		for (T member : members) {
+			if (granted || member.trySetAccessible()) {
+				copies.put(member, member);
+			}
+		}
+		return copies;
+	}
+
+	private static boolean isAccessibleCopy(Map<?, ?> copies, Object member) {
+		return copies != null && copies.get(member) == member;
+	}
+
+	/**
+	 * The methods declared by the class and those it inherits from its superclasses and interfaces.
+	 * An overridden method is replaced by the overriding one, and superclass methods win over interface methods.
+	 * Private methods of ancestors and static interface methods are not inherited, nor are the methods of ancestors this library
+	 * could never make accessible, such as the protected clone and finalize of Object, which getMethods() leaves out too.
+	 * @return the methods of the class and its ancestors
+	 */
+	/* package */ List<Method> hierarchyMethods() {
+		List<Method> snapshot = hierarchyMethods;
+		if (snapshot == null) {
+			List<Method> merged = new ArrayList<Method>(declaredMethods());
+			Map<String, Method> signatures = new HashMap<String, Method>();
+			for (Method method : merged) {
+				signatures.put(signature(method), method);
+			}
+			for (Class<?> supertype : supertypes()) {
+				for (Method method : MetadataCache.of(supertype).hierarchyMethods()) {
+					if (isInherited(method) && !signatures.containsKey(signature(method))) {
+						signatures.put(signature(method), method);
+						merged.add(method);
+					}
+				}
+			}
+			hierarchySignatures = signatures;
+			hierarchyMethods = snapshot = Collections.unmodifiableList(merged);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * @return an index of hierarchyMethods() by method name
+	 */
+	/* package */ Map<String, int[]> hierarchyMethodIndex() {
+		Map<String, int[]> index = hierarchyMethodIndex;
+		if (index == null) {
+			hierarchyMethodIndex = index = index(NameIndex.METHODS, hierarchyMethods());
+		}
+		return index;
+	}
+
+	/**
+	 * The annotations on the class and on its superclasses and interfaces, whether or not they are @Inherited.
+	 * Only the nearest annotation of each type is kept, superclasses are searched before interfaces.
+	 * @return the annotations of the class and its ancestors
+	 */
+	/* package */ List<Annotation> hierarchyAnnotations() {
+		List<Annotation> snapshot = hierarchyAnnotations;
+		if (snapshot == null) {
+			List<List<Annotation>> inherited = new ArrayList<List<Annotation>>();
+			for (Class<?> supertype : supertypes()) {
+				inherited.add(MetadataCache.of(supertype).hierarchyAnnotations());
+			}
+			hierarchyAnnotations = snapshot = merge(declaredAnnotations(), inherited);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * The annotations on a method and on the methods it overrides, in the superclasses and interfaces of this class.
+	 * An inherited method is resolved against this class rather than the class declaring it,
+	 * as it can implement an interface method which only this class brings in.
+	 * Only the nearest annotation of each type is kept.
+	 * @param method a method declared by the class, or one of hierarchyMethods()
+	 * @return the annotations of the method and the methods it overrides
+	 */
+	/* package */ List<Annotation> hierarchyAnnotations(Method method) {
+		List<Annotation> snapshot = hierarchyMethodAnnotations.get(method);
+		if (snapshot == null) {
+			String signature = signature(method);
+			List<List<Annotation>> inherited = new ArrayList<List<Annotation>>();
+			for (Class<?> supertype : supertypes()) {
+				ClassMetadata metadata = MetadataCache.of(supertype);
+				Method overridden = metadata.hierarchySignatures().get(signature);
+				if (overridden != null && isInherited(overridden)) {
+					inherited.add(metadata.hierarchyAnnotations(overridden));
+				}
+			}
+			List<Annotation> own = method.getDeclaringClass() == type ? annotations(method) : MetadataCache.of(method.getDeclaringClass()).annotations(method);
+			snapshot = merge(own, inherited);
+			List<Annotation> existing = hierarchyMethodAnnotations.putIfAbsent(method, snapshot);
+			if (existing != null) {
+				snapshot = existing;
+			}
+		}
+		return snapshot;
+	}
+
+	private Map<String, Method> hierarchySignatures() {
+		Map<String, Method> signatures = hierarchySignatures;
+		if (signatures == null) {
+			hierarchyMethods();
+			signatures = hierarchySignatures;
+		}
+		return signatures;
+	}
+
+	private List<Class<?>> supertypes() {
+		List<Class<?>> supertypes = new ArrayList<Class<?>>();
+		if (type.getSuperclass() != null) {
+			supertypes.add(type.getSuperclass());
+		}
+		supertypes.addAll(Arrays.asList(type.getInterfaces()));
+		return supertypes;
+	}
+
+	private static boolean isInherited(Method method) {
+		int modifiers = method.getModifiers();
+		return !Modifier.isPrivate(modifiers) && !(Modifier.isStatic(modifiers) && method.getDeclaringClass().isInterface()) && isOpenable(method);
+	}
+
+	/**
+	 * @return true if setAccessible could succeed on method, because its package is open to this library,
+	 * or it is a public method of a public class in an exported package
+	 */
+	private static boolean isOpenable(Method method) {
+		Class<?> declaringClass = method.getDeclaringClass();
+		Module module = declaringClass.getModule();
+		String packageName = declaringClass.getPackageName();
+		Module library = ClassMetadata.class.getModule();
+		if (module.isOpen(packageName, library)) {
+			return true;
+		}
+		return Modifier.isPublic(method.getModifiers()) && Modifier.isPublic(declaringClass.getModifiers()) && module.isExported(packageName, library);
+	}
+
+	/**
+	 * @return the name and parameter types of a method, which an overriding method shares
+	 */
+	private static String signature(Method method) {
+		String descriptor = Descriptors.descriptor(method);
+		return method.getName() + descriptor.substring(0, descriptor.indexOf(')') + 1);
+	}
+
+	/**
+	 * @return own, followed by the inherited annotations whose types are not already present, nearest first
+	 */
+	private static List<Annotation> merge(List<Annotation> own, List<List<Annotation>> inherited) {
+		if (inherited.isEmpty()) {
+			return own;
+		}
+		List<Annotation> merged = new ArrayList<Annotation>(own);
+		List<Class<? extends Annotation>> types = new ArrayList<Class<? extends Annotation>>();
+		for (Annotation annotation : own) {
+			types.add(annotation.annotationType());
+		}
+		for (List<Annotation> annotations : inherited) {
+			for (Annotation annotation : annotations) {
+				if (!types.contains(annotation.annotationType())) {
+					types.add(annotation.annotationType());
+					merged.add(annotation);
+				}
+			}
+		}
+		return merged.size() == own.size() ? own : Collections.unmodifiableList(merged);
+	}
+
+	private static <T> Map<String, int[]> index(NameIndex<T> index, List<T> items) {
+		return index.build(items);
+	}
+
+	private static <T> List<T> snapshot(T[] array) {
+		return Collections.unmodifiableList(Arrays.asList(array));
+	}
+}
@@ -0,0 +1,306 @@
+package org.ttang.fluent.reflection;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.ttang.fluent.reflection.ClassPathTasks.ClassBytes;
+import org.ttang.fluent.reflection.ClassPathTasks.ClassFileVisitor;
+
+/**
+ * A fluent API for finding classes across a whole class path, rather than within a class you already hold.
+ * Directories and jars are walked in parallel on a fork join pool sized to the number of cores,
+ * and read through memory mapped files rather than streams.
+ * Annotations are matched in the class files, so only the classes which match are ever loaded,
+ * and classFiles() gives the names, methods and annotations of every class without loading any of them.
+ * <p>
+ * Sample usage:
+ *		List<Class<?>> services =
+ *		ClassPathScanner
+ *		.of(getClass().getClassLoader())
+ *		.inPackages("com.example")
+ *		.annotatedWith(RestService.class)
+ *		.types();
+ * @author ttang
+ *
+ */
+public class ClassPathScanner {
+	private final ClassLoader loader;
+	private final List<File> entries;
+	private final ClassFileContext context;
+	private Set<String> packages = Collections.emptySet();
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private MetadataSnapshot snapshot;
+
+	private ClassPathScanner(ClassLoader loader, List<File> entries) {
+		this.loader = loader;
+		this.entries = entries;
+		this.context = new ClassFileContext(loader);
+	}
+
+	/**
+	 * Scans the class path of a ClassLoader and its parents, falling back to java.class.path
+	 * when the loaders do not expose their URLs
+	 * @param loader the loader used to find and load classes
+	 * @return the scanner for chaining
+	 */
+	public static ClassPathScanner of(ClassLoader loader) {
+		return new ClassPathScanner(loader, entries(loader));
+	}
+
+	/**
+	 * @param loader a loader
+	 * @return the class path directories and jars of the loader and its parents, or java.class.path if they do not expose their URLs
+	 */
+	/* package */ static List<File> entries(ClassLoader loader) {
+		Set<File> entries = new LinkedHashSet<File>();
+		for (ClassLoader parent = loader; parent != null; parent = parent.getParent()) {
+			if (parent instanceof URLClassLoader) {
+				for (URL url : ((URLClassLoader)parent).getURLs()) {
+					if ("file".equals(url.getProtocol())) {
+						try {
+							entries.add(new File(url.toURI()));
+						} catch (URISyntaxException e) {
+							entries.add(new File(url.getPath()));
+						}
+					}
+				}
+			}
+		}
+		if (entries.isEmpty()) {
+			for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+				entries.add(new File(entry));
+			}
+		}
+		return new ArrayList<File>(entries);
+	}
+
+	/**
+	 * Scans specific directories and jars
+	 * @param loader the loader used to load the classes found
+	 * @param entries the class path directories and jars
+	 * @return the scanner for chaining
+	 */
+	public static ClassPathScanner of(ClassLoader loader, File... entries) {
+		return new ClassPathScanner(loader, Arrays.asList(entries.clone()));
+	}
+
+	/**
+	 * Restricts the scan to classes in, or below, the named packages
+	 * @param packageNames such as "com.example"
+	 * @return the scanner for chaining
+	 */
+	public ClassPathScanner inPackages(String... packageNames) {
+		this.packages = ArrayUtils.asSet(packageNames);
+		return this;
+	}
+
+	/**
+	 * @param threads the number of threads to scan with, defaults to the number of cores
+	 * @return the scanner for chaining
+	 */
+	public ClassPathScanner parallelism(int threads) {
+		this.parallelism = threads;
+		return this;
+	}
+
+	/**
+	 * Remembers the classes and methods found in a snapshot, so the next scan of an unchanged class path
+	 * only loads what it finds. classFiles() is always scanned.
+	 * @param snapshot the snapshot to read from and add to
+	 * @return the scanner for chaining
+	 */
+	public ClassPathScanner using(MetadataSnapshot snapshot) {
+		this.snapshot = snapshot;
+		return this;
+	}
+
+	/**
+	 * Finds the classes annotated with annotationClass, as BoundAnnotations.on(Class) would see them.
+	 * Only the annotated classes are loaded.
+	 * @param annotationClass the annotation to look for
+	 * @return the annotated classes for chaining
+	 */
+	public DeclaredClasses annotatedWith(final Class<? extends Annotation> annotationClass) {
+		final String annotationName = annotationClass.getName();
+		return DeclaredClasses.of(scanClasses("annotatedWith " + annotationName, new ClassFileVisitor<Class<?>>() {
+			@Override
+			public void visit(String className, ClassBytes bytes, List<Class<?>> results) {
+				ClassFile classFile = parse(bytes);
+				if (classFile != null && classFile.annotations().matching(annotationName).iterator().hasNext()) {
+					Class<?> type = load(className);
+					if (type != null) {
+						results.add(type);
+					}
+				}
+			}
+		}));
+	}
+
+	/**
+	 * Reads every class file on the class path, without loading any classes
+	 * @return the class files for chaining
+	 */
+	public ClassFiles classFiles() {
+		return ClassFiles.of(scan(new ClassFileVisitor<ClassFile>() {
+			@Override
+			public void visit(String className, ClassBytes bytes, List<ClassFile> results) {
+				ClassFile classFile = parse(bytes);
+				if (classFile != null) {
+					results.add(classFile);
+				}
+			}
+		}));
+	}
+
+	/**
+	 * Loads every class on the class path, without initializing them
+	 * @return the classes for chaining
+	 */
+	public DeclaredClasses classes() {
+		return DeclaredClasses.of(scanClasses("classes", new ClassFileVisitor<Class<?>>() {
+			@Override
+			public void visit(String className, ClassBytes bytes, List<Class<?>> results) {
+				Class<?> type = load(className);
+				if (type != null) {
+					results.add(type);
+				}
+			}
+		}));
+	}
+
+	/**
+	 * Finds the methods, declared by any class on the class path, which are annotated with annotationClass.
+	 * Only the classes declaring annotated methods are loaded.
+	 * @param annotationClass the annotation to look for
+	 * @return the annotated methods for chaining
+	 */
+	public DeclaredMethods methodsAnnotatedWith(final Class<? extends Annotation> annotationClass) {
+		final String annotationName = annotationClass.getName();
+		return DeclaredMethods.of(scanMethods("methodsAnnotatedWith " + annotationName, new ClassFileVisitor<Method>() {
+			@Override
+			public void visit(String className, ClassBytes bytes, List<Method> results) {
+				ClassFile classFile = parse(bytes);
+				if (classFile == null) {
+					return;
+				}
+				for (ClassFileMethod method : classFile.methods().annotatedWith(annotationName)) {
+					try {
+						results.add(method.method());
+					} catch (ClassNotFoundException | NoSuchMethodException | LinkageError e) {
+						// not loadable through this loader, or a method refers to a class which is missing from the class path
+					}
+				}
+			}
+		}));
+	}
+
+	private List<Class<?>> scanClasses(String query, final ClassFileVisitor<Class<?>> visitor) {
+		if (snapshot == null) {
+			return scan(visitor);
+		}
+		return snapshot.resolve(key(query), new MetadataSnapshot.Query<Class<?>>() {
+			@Override
+			List<Class<?>> compute() {
+				return scan(visitor);
+			}
+
+			@Override
+			String write(Class<?> type) {
+				return type.getName();
+			}
+
+			@Override
+			Class<?> read(String value) throws ClassNotFoundException {
+				return Class.forName(value, false, loader);
+			}
+		});
+	}
+
+	private List<Method> scanMethods(String query, final ClassFileVisitor<Method> visitor) {
+		if (snapshot == null) {
+			return scan(visitor);
+		}
+		return snapshot.resolve(key(query), new MetadataSnapshot.Query<Method>() {
+			@Override
+			List<Method> compute() {
+				return scan(visitor);
+			}
+
+			@Override
+			String write(Method method) {
+				return method.getDeclaringClass().getName() + " " + method.getName() + " " + Descriptors.descriptor(method);
+			}
+
+			@Override
+			Method read(String value) throws ReflectiveOperationException {
+				String[] parts = value.split(" ");
+				return MetadataSnapshot.method(Class.forName(parts[0], false, loader), parts[1], parts[2]);
+			}
+		});
+	}
+
+	/**
+	 * Scans of different class paths, or packages, are remembered separately
+	 */
+	private String key(String query) {
+		List<String> packageNames = new ArrayList<String>(packages);
+		Collections.sort(packageNames);
+		return "scan " + Long.toHexString(snapshot.hashOf(entries)) + " " + packageNames + " " + query;
+	}
+
+	private <T> List<T> scan(ClassFileVisitor<T> visitor) {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			return Collections.unmodifiableList(pool.invoke(ClassPathTasks.walk(entries, packageFilter(visitor))));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private <T> ClassFileVisitor<T> packageFilter(final ClassFileVisitor<T> visitor) {
+		if (packages.isEmpty()) {
+			return visitor;
+		}
+
+		return new ClassFileVisitor<T>() {
+			@Override
+			public void visit(String className, ClassBytes bytes, List<T> results) {
+				for (String packageName : packages) {
+					if (className.startsWith(packageName) && className.length() > packageName.length()
+							&& className.charAt(packageName.length()) == '.') {
+						visitor.visit(className, bytes, results);
+						return;
+					}
+				}
+			}
+		};
+	}
+
+	private Class<?> load(String className) {
+		try {
+			return Class.forName(className, false, loader);
+		} catch (ClassNotFoundException | LinkageError e) {
+			return null; // not loadable through this loader, so not part of the scan
+		}
+	}
+
+	private ClassFile parse(ClassBytes bytes) {
+		try {
+			return ClassFileParser.parse(bytes.read(), context);
+		} catch (IOException | ClassFormatError e) {
+			return null; // not a readable class file, so not part of the scan
+		}
+	}
+}
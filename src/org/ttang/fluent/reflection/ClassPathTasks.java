@@ -0,0 +1,289 @@
+package org.ttang.fluent.reflection;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * The fork join tasks which walk a class path for the ClassPathScanner.
+ * Each class path entry is walked by its own task, directories fork a task per sub directory
+ * and the class files of a jar are split into ranges which are visited in parallel.
+ * Results are joined in walk order, so a scan gives the same order however many threads it uses.
+ * Visitors are handed the class file bytes on demand. Jars and class files are memory mapped,
+ * falling back to JarFile for jars MappedJar does not handle, such as zip64 jars.
+ * @author ttang
+ *
+ */
+/* package */ class ClassPathTasks {
+	private static final String CLASS_SUFFIX = ".class";
+	private static final int CLASSES_PER_TASK = 64;
+
+	private ClassPathTasks() {
+	}
+
+	/**
+	 * Visits each class file found on a class path
+	 * @author ttang
+	 *
+	 */
+	/* package */ interface ClassFileVisitor<T> {
+		/**
+		 * Called concurrently, from many threads
+		 * @param className the binary name of the class
+		 * @param bytes reads the class file, if the visitor needs more than the name
+		 * @param results the list to add any results to, owned by the calling task
+		 */
+		void visit(String className, ClassBytes bytes, List<T> results);
+	}
+
+	/**
+	 * The bytes of a class file, read when asked for
+	 * @author ttang
+	 *
+	 */
+	/* package */ interface ClassBytes {
+		/**
+		 * The buffer may be a view of a mapped file or a buffer the thread reuses,
+		 * so it is only valid until the visitor returns and must not be kept
+		 * @return the whole class file
+		 * @throws IOException if the class file cannot be read
+		 */
+		ByteBuffer read() throws IOException;
+	}
+
+	/**
+	 * @param entries the class path directories and jars
+	 * @param visitor called for each class file
+	 * @return a task producing the results of visiting every class file under entries
+	 */
+	/* package */ static <T> RecursiveTask<List<T>> walk(List<File> entries, ClassFileVisitor<T> visitor) {
+		return new EntriesTask<T>(entries, visitor);
+	}
+
+	private static <T> List<T> joinAll(List<? extends ForkJoinTask<List<T>>> tasks, List<T> results) {
+		for (ForkJoinTask<List<T>> task : tasks) {
+			results.addAll(task.join());
+		}
+		return results;
+	}
+
+	private static String className(String path) {
+		return path.substring(0, path.length() - CLASS_SUFFIX.length()).replace('/', '.').replace('\\', '.');
+	}
+
+	private static boolean isClass(String path) {
+		return path.endsWith(CLASS_SUFFIX) && !path.endsWith("module-info.class") && !path.endsWith("package-info.class");
+	}
+
+	private static class EntriesTask<T> extends RecursiveTask<List<T>> {
+		private static final long serialVersionUID = 1L;
+		private final List<File> entries;
+		private final ClassFileVisitor<T> visitor;
+
+		private EntriesTask(List<File> entries, ClassFileVisitor<T> visitor) {
+			this.entries = entries;
+			this.visitor = visitor;
+		}
+
+		@Override
+		protected List<T> compute() {
+			List<RecursiveTask<List<T>>> tasks = new ArrayList<RecursiveTask<List<T>>>();
+			for (File entry : entries) {
+				if (entry.isDirectory()) {
+					tasks.add(new DirectoryTask<T>(entry, "", visitor));
+				} else if (entry.isFile()) {
+					tasks.add(new JarTask<T>(entry, visitor));
+				}
+			}
+			invokeAll(tasks);
+			return joinAll(tasks, new ArrayList<T>());
+		}
+	}
+
+	private static class DirectoryTask<T> extends RecursiveTask<List<T>> {
+		private static final long serialVersionUID = 1L;
+		private final File directory;
+		private final String prefix;
+		private final ClassFileVisitor<T> visitor;
+
+		private DirectoryTask(File directory, String prefix, ClassFileVisitor<T> visitor) {
+			this.directory = directory;
+			this.prefix = prefix;
+			this.visitor = visitor;
+		}
+
+		@Override
+		protected List<T> compute() {
+			File[] files = directory.listFiles();
+			if (files == null) {
+				return new ArrayList<T>();
+			}
+			Arrays.sort(files);
+
+			List<RecursiveTask<List<T>>> tasks = new ArrayList<RecursiveTask<List<T>>>();
+			List<ClassEntry> classes = new ArrayList<ClassEntry>();
+			for (File file : files) {
+				if (file.isDirectory()) {
+					tasks.add(new DirectoryTask<T>(file, prefix + file.getName() + "/", visitor));
+				} else if (isClass(file.getName())) {
+					classes.add(new FileEntry(className(prefix + file.getName()), file));
+				}
+			}
+			tasks.add(new ClassesTask<T>(classes, 0, classes.size(), visitor));
+			invokeAll(tasks);
+			return joinAll(tasks, new ArrayList<T>());
+		}
+	}
+
+	private static class JarTask<T> extends RecursiveTask<List<T>> {
+		private static final long serialVersionUID = 1L;
+		private final File jar;
+		private final ClassFileVisitor<T> visitor;
+
+		private JarTask(File jar, ClassFileVisitor<T> visitor) {
+			this.jar = jar;
+			this.visitor = visitor;
+		}
+
+		@Override
+		protected List<T> compute() {
+			MappedJar mapped;
+			try {
+				mapped = MappedJar.open(jar);
+			} catch (IOException e) {
+				return readJarFile();
+			}
+
+			List<ClassEntry> classes = new ArrayList<ClassEntry>();
+			for (MappedJar.Entry entry : mapped.entries()) {
+				String name = entry.name();
+				if (isClass(name) && !name.startsWith("META-INF/")) {
+					classes.add(new MappedEntry(className(name), mapped, entry));
+				}
+			}
+			return new ClassesTask<T>(classes, 0, classes.size(), visitor).compute();
+		}
+
+		private List<T> readJarFile() {
+			try (JarFile jarFile = new JarFile(jar)) {
+				List<ClassEntry> classes = new ArrayList<ClassEntry>();
+				Enumeration<JarEntry> entries = jarFile.entries();
+				while (entries.hasMoreElements()) {
+					JarEntry entry = entries.nextElement();
+					if (!entry.isDirectory() && isClass(entry.getName()) && !entry.getName().startsWith("META-INF/")) {
+						classes.add(new JarEntryEntry(className(entry.getName()), jarFile, entry));
+					}
+				}
+				return new ClassesTask<T>(classes, 0, classes.size(), visitor).compute();
+			} catch (IOException e) {
+				return new ArrayList<T>(); // not a readable jar, so nothing to scan
+			}
+		}
+	}
+
+	private static class ClassesTask<T> extends RecursiveTask<List<T>> {
+		private static final long serialVersionUID = 1L;
+		private final List<ClassEntry> classes;
+		private final int from;
+		private final int to;
+		private final ClassFileVisitor<T> visitor;
+
+		private ClassesTask(List<ClassEntry> classes, int from, int to, ClassFileVisitor<T> visitor) {
+			this.classes = classes;
+			this.from = from;
+			this.to = to;
+			this.visitor = visitor;
+		}
+
+		@Override
+		protected List<T> compute() {
+			if (to - from > CLASSES_PER_TASK) {
+				int middle = (from + to) >>> 1;
+				ClassesTask<T> first = new ClassesTask<T>(classes, from, middle, visitor);
+				ClassesTask<T> second = new ClassesTask<T>(classes, middle, to, visitor);
+				first.fork();
+				List<T> results = second.compute();
+				List<T> firstResults = first.join();
+				firstResults.addAll(results);
+				return firstResults;
+			}
+
+			List<T> results = new ArrayList<T>();
+			for (int i = from; i < to; i++) {
+				ClassEntry entry = classes.get(i);
+				visitor.visit(entry.className, entry, results);
+			}
+			return results;
+		}
+	}
+
+	private abstract static class ClassEntry implements ClassBytes {
+		private final String className;
+
+		private ClassEntry(String className) {
+			this.className = className;
+		}
+	}
+
+	private static class FileEntry extends ClassEntry {
+		private final File file;
+
+		private FileEntry(String className, File file) {
+			super(className);
+			this.file = file;
+		}
+
+		@Override
+		public ByteBuffer read() throws IOException {
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				return channel.map(MapMode.READ_ONLY, 0, channel.size());
+			}
+		}
+	}
+
+	private static class MappedEntry extends ClassEntry {
+		private final MappedJar jar;
+		private final MappedJar.Entry entry;
+
+		private MappedEntry(String className, MappedJar jar, MappedJar.Entry entry) {
+			super(className);
+			this.jar = jar;
+			this.entry = entry;
+		}
+
+		@Override
+		public ByteBuffer read() throws IOException {
+			return jar.read(entry);
+		}
+	}
+
+	private static class JarEntryEntry extends ClassEntry {
+		private final JarFile jarFile;
+		private final JarEntry entry;
+
+		private JarEntryEntry(String className, JarFile jarFile, JarEntry entry) {
+			super(className);
+			this.jarFile = jarFile;
+			this.entry = entry;
+		}
+
+		@Override
+		public ByteBuffer read() throws IOException {
+			try (InputStream in = jarFile.getInputStream(entry)) {
+				return ByteBuffer.wrap(ClassFile.readAll(in));
+			}
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package org.ttang.fluent.reflection;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A reusable, immutable and thread safe query over the classes declared within a class.
+ * The query remembers its result for each class it is applied to, see MethodQuery.
+ * <p>
+ * Sample usage:
+ *		static final ClassQuery ON_EVENT = ClassQuery.create().named("OnEvent");
+ *
+ *		Class<?> type = ON_EVENT.from(RestService.class).type();
+ * @author ttang
+ *
+ */
+public final class ClassQuery {
+	private final Selection<Class<?>> selection;
+	private final ClassValue<List<Class<?>>> results = new ClassValue<List<Class<?>>>() {
+		@Override
+		protected List<Class<?>> computeValue(Class<?> type) {
+			return Collections.unmodifiableList(selection.over(MetadataCache.of(type).declaredClasses()).list());
+		}
+	};
+
+	private ClassQuery(Selection<Class<?>> selection) {
+		this.selection = selection;
+	}
+
+	/**
+	 * @return a query selecting every declared class, for chaining
+	 */
+	public static ClassQuery create() {
+		return new ClassQuery(Selection.of(Collections.<Class<?>>emptyList()));
+	}
+
+	/**
+	 * @param name the simple name of the class
+	 * @return a new query which also requires classes to be called name
+	 */
+	public ClassQuery named(String name) {
+		return new ClassQuery(selection.where(Filters.classesNamed(name)));
+	}
+
+	/**
+	 * Applies the query to a class, the result is remembered for the next time the query is applied to the same class
+	 * @param enclosingClass the enclosing class
+	 * @return the selected classes for chaining
+	 */
+	public DeclaredClasses from(Class<?> enclosingClass) {
+		return DeclaredClasses.of(results.get(enclosingClass));
+	}
+}
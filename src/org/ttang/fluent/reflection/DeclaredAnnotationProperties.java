@@ -1,6 +1,5 @@
 package org.ttang.fluent.reflection;
 
-import java.util.Arrays;
 import java.util.List;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
@@ -13,9 +12,11 @@ import java.lang.reflect.Method;
 public class DeclaredAnnotationProperties {
 
 	private List<Method> methods;
+	private ClassMetadata metadata;
 
-	private DeclaredAnnotationProperties(Method[] methods) {
-		this.methods = Arrays.asList(methods);
+	private DeclaredAnnotationProperties(ClassMetadata metadata) {
+		this.methods = metadata.methods();
+		this.metadata = metadata;
 	}
 
 	/**
@@ -24,7 +25,7 @@ public class DeclaredAnnotationProperties {
 	 * @return DeclaredAnnotationProperties for fluent chaining
 	 */
 	public static DeclaredAnnotationProperties from (Class<? extends Annotation> annotationType) {
-		return new DeclaredAnnotationProperties(annotationType.getMethods());
+		return new DeclaredAnnotationProperties(MetadataCache.lookup(annotationType));
 	}
 	
 	/**
@@ -34,12 +35,20 @@ public class DeclaredAnnotationProperties {
 	 * @throws NoSuchPropertyException if the name was not found
 	 */
 	public DeclaredAnnotationProperty named(String name) throws NoSuchPropertyException {
-		for (Method method : methods) {
-			if (method.getName().equals(name)) {
-				return DeclaredAnnotationProperty.from(method);
-			}
+		DeclaredAnnotationProperty property = find(name);
+		if (property == null) {
+			Throw.Always().NoSuchProperty(name + " property not found");
 		}
-		
-		throw new NoSuchPropertyException(name + " property not found");
+		return property;
+	}
+
+	/**
+	 * Fetch the property (aka value) identified by name, without throwing if there is none
+	 * @param name
+	 * @return DeclaredAnnotationProperty, or null if the name was not found
+	 */
+	public DeclaredAnnotationProperty find(String name) {
+		int[] positions = metadata.methodIndex().get(name);
+		return positions == null ? null : DeclaredAnnotationProperty.from(methods.get(positions[0]));
 	}
 }
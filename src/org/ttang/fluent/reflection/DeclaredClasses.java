@@ -1,14 +1,16 @@
 package org.ttang.fluent.reflection;
 
 import java.lang.annotation.Annotation;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Stream;
 
 /**
  * A fluent style API for reflecting over classes declared within a class.
+ * Filters are applied lazily, in a single pass, when a terminal operation such as type() is called.
+ * Each filter returns a new, immutable query, so a partly built query can be kept in a static field and shared between threads.
  * <p>
  * Sample Usage: 
  * 	DeclaredClasses
@@ -19,17 +21,33 @@ import java.util.List;
  */
 public class DeclaredClasses implements Iterable<Class<?>> {
 
-	private List<Class<?>> classes;
+	private final Selection<Class<?>> selection;
+	private final ClassMetadata metadata; // set while the selection is still the unfiltered list of the class, for indexed lookups
 
-	private DeclaredClasses(Class<?>[] classes) {
-		this.classes = Arrays.asList(classes);
+	private DeclaredClasses(List<Class<?>> classes, ClassMetadata metadata) {
+		this(Selection.of(classes), metadata);
+	}
+
+	private DeclaredClasses(Selection<Class<?>> selection, ClassMetadata metadata) {
+		this.selection = selection;
+		this.metadata = metadata;
 	}
 	
 	/**
 	 * Retrieves all the classes contained within the enclosing class
 	 */
 	public static DeclaredClasses from(Class<?> enclosingClass) {
-		return new DeclaredClasses(enclosingClass.getDeclaredClasses());
+		long start = Instrumentation.start();
+		try {
+			ClassMetadata metadata = MetadataCache.lookup(enclosingClass);
+			return new DeclaredClasses(metadata.declaredClasses(), metadata);
+		} finally {
+			Instrumentation.timed("DeclaredClasses.from", start);
+		}
+	}
+
+	/* package */ static DeclaredClasses of(List<Class<?>> classes) {
+		return new DeclaredClasses(classes, null);
 	}
 
 	/**
@@ -38,17 +56,37 @@ public class DeclaredClasses implements Iterable<Class<?>> {
 	 * Sample usage: DeclaredClasses.from(MyClass.class).named("MyContainedClass")
 	 */
 	public DeclaredClasses named(String name) {
-		List<Class<?>> filteredClasses = new ArrayList<Class<?>>();
-		for (Class<?> clazz : classes) {
-			if (clazz.getSimpleName().equals(name)) {
-				filteredClasses.add(clazz);
-			}
+		if (metadata != null) {
+			return new DeclaredClasses(NameIndex.select(selection.list(), metadata.declaredClassIndex(), name), null);
 		}
-		
-		this.classes = filteredClasses;
-		return this;
+
+		return new DeclaredClasses(selection.where(Filters.classesNamed(name)), null);
 	}
 	
+	/**
+	 * Narrows the list to the classes annotated with at least one of the types
+	 * <p>
+	 * Sample usage: DeclaredClasses.from(MyClass.class).annotatedWithAny(Singleton.class, Immutable.class)
+	 * @param types the annotations to look for
+	 * @return the filtered list for chaining
+	 */
+	@SafeVarargs
+	public final DeclaredClasses annotatedWithAny(Class<? extends Annotation>... types) {
+		return new DeclaredClasses(selection.where(Filters.classesAnnotatedWithAny(types)), null);
+	}
+
+	/**
+	 * Narrows the list to the classes annotated with every one of the types
+	 * <p>
+	 * Sample usage: DeclaredClasses.from(MyClass.class).annotatedWithAll(Singleton.class, Immutable.class)
+	 * @param types the annotations to look for
+	 * @return the filtered list for chaining
+	 */
+	@SafeVarargs
+	public final DeclaredClasses annotatedWithAll(Class<? extends Annotation>... types) {
+		return new DeclaredClasses(selection.where(Filters.classesAnnotatedWithAll(types)), null);
+	}
+
 	/**
 	 * throws if the list has not been narrowed to contain exactly one class
 	 * <p>
@@ -56,7 +94,7 @@ public class DeclaredClasses implements Iterable<Class<?>> {
 	 * @throws ClassNotFoundException if the list does not contain one class
 	 */
 	public DeclaredClasses exactlyOne() throws ClassNotFoundException {
-		Throw.Unless(classes.size() == 1).ClassNotFound("Expected exactly one class. Found " + classes.size());
+		only();
 		return this;
 	}
 	
@@ -67,7 +105,22 @@ public class DeclaredClasses implements Iterable<Class<?>> {
 	 * @throws ClassNotFoundException if the list has not been narrowed to a single class
 	 */
 	public Class<?> type() throws ClassNotFoundException {
-		return exactlyOne().classes.get(0);
+		long start = Instrumentation.start();
+		try {
+			return only();
+		} finally {
+			Instrumentation.timed("DeclaredClasses.type", start);
+		}
+	}
+
+	/**
+	 * The non throwing form of type(), for probing for optional classes
+	 * <p>
+	 * Sample usage: Class<?> clazz = DeclaredClasses.from(MyClass.class).named("MyContainedClass").findOne();
+	 * @return the Java class of the one and only class in the list, or null unless there is exactly one class in the list
+	 */
+	public Class<?> findOne() {
+		return selection.only();
 	}
 	
 	/**
@@ -76,7 +129,7 @@ public class DeclaredClasses implements Iterable<Class<?>> {
 	 * @return unmodifiable list of classes
 	 */
 	public List<Class<?>> types() {
-		return Collections.unmodifiableList(classes);
+		return Collections.unmodifiableList(selection.list());
 	}
 	
 	/**
@@ -109,12 +162,40 @@ public class DeclaredClasses implements Iterable<Class<?>> {
 	@SuppressWarnings("unchecked")
 	public Class<? extends Annotation>annotationType() throws ClassNotFoundException {
 		Class<?> type = this.type();
-		Throw.Unless(this.type().isAnnotation()).ClassNotFound(type.getCanonicalName() + " is not an annotation");
+		Throw.Unless(type.isAnnotation()).ClassNotFound(type.getCanonicalName() + " is not an annotation");
 		return (Class<? extends Annotation>)type;
 	}
 
 	@Override
 	public Iterator<Class<?>> iterator() {
-		return Collections.unmodifiableList(classes).iterator();
+		return selection.iterator();
+	}
+
+	@Override
+	public Spliterator<Class<?>> spliterator() {
+		return selection.spliterator();
+	}
+
+	/**
+	 * @return a sequential stream of the classes in the list
+	 */
+	public Stream<Class<?>> stream() {
+		return selection.stream(false);
+	}
+
+	/**
+	 * The list is split by index rather than copied, so large lists can be filtered and mapped in parallel
+	 * @return a parallel stream of the classes in the list
+	 */
+	public Stream<Class<?>> parallelStream() {
+		return selection.stream(true);
+	}
+
+	private Class<?> only() throws ClassNotFoundException {
+		Class<?> found = selection.only();
+		if (found == null) {
+			Throw.Always().ClassNotFound("Expected exactly one class. Found " + (selection.limit(1).isEmpty() ? "none" : "more than one"));
+		}
+		return found;
 	}
 }
@@ -0,0 +1,188 @@
+package org.ttang.fluent.reflection;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+
+/**
+ * A fluent API for reflecting over the Constructors declared by a class.
+ * Filters are collected as the query is built and applied in a single pass by the terminal operations,
+ * such as constructors(), constructor() and factory(), so a query can be evaluated more than once.
+ * A query is immutable, each filter returns a new query sharing the earlier ones, so a partly built query
+ * can be kept in a static field and used from many threads.
+ * <p>
+ * Sample usage:
+ *		InstanceFactory<Order> factory =
+ *		DeclaredConstructors
+ *		.from(Order.class)
+ *		.withParameterTypes(String.class, int.class)
+ *		.setAccessible(true)
+ *		.factory();
+ * @author ttang
+ *
+ */
+public class DeclaredConstructors<T> implements Iterable<Constructor<T>> {
+
+	private final Selection<Constructor<T>> selection; // read by the terminals, the accessible copies of the constructors after setAccessible(true)
+	private final Selection<Constructor<T>> members; // the same selection of the shared constructors
+
+	private DeclaredConstructors(Selection<Constructor<T>> selection, Selection<Constructor<T>> members) {
+		this.selection = selection;
+		this.members = members == null ? selection : members;
+	}
+
+	/**
+	 * Fetches all of the constructors declared by a class
+	 * @param type the class to construct
+	 * @return the list for chaining
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static <T> DeclaredConstructors<T> from(Class<T> type) {
+		long start = Instrumentation.start();
+		try {
+			// getDeclaredConstructors() of a Class<T> only returns Constructor<T>, its signature cannot say so
+			return new DeclaredConstructors<T>(Selection.of((List)MetadataCache.lookup(type).declaredConstructors()), null);
+		} finally {
+			Instrumentation.timed("DeclaredConstructors.from", start);
+		}
+	}
+
+	/**
+	 * @return the Java unmodifiable list
+	 */
+	public List<Constructor<T>> constructors() {
+		return Collections.unmodifiableList(selection.list());
+	}
+
+	/**
+	 * Filters the list to contain constructors annotated with annotationClass
+	 * @param annotationClass
+	 * @return the filtered list for chaining
+	 */
+	public DeclaredConstructors<T> annotatedWith(Class<? extends Annotation> annotationClass) {
+		return where(Filters.constructorsAnnotatedWith(annotationClass));
+	}
+
+	/**
+	 * Filter the constructors to those with specific parameter types, withParameterTypes() selects the no argument constructor
+	 * @param parameterTypes the parameter types used for matching
+	 * @return the filtered list for chaining
+	 */
+	public DeclaredConstructors<T> withParameterTypes(Class<?>... parameterTypes) {
+		return where(Filters.constructorsWithParameterTypes(parameterTypes.clone()));
+	}
+
+	/**
+	 * @return constructor list for chaining
+	 * @throws NoSuchMethodException throws unless there is at least one constructor in the list
+	 */
+	public DeclaredConstructors<T> atLeastOne() throws NoSuchMethodException {
+		Throw.If(selection.limit(1).isEmpty()).NoSuchMethod("There are no constructors");
+		return this;
+	}
+
+	/**
+	 * @return constructor list for chaining
+	 * @throws NoSuchMethodException unless there is exactly one constructor in the list
+	 */
+	public DeclaredConstructors<T> exactlyOne() throws NoSuchMethodException {
+		only();
+		return this;
+	}
+
+	/**
+	 * @return the Java Constructor of the single Constructor in the list
+	 * @throws NoSuchMethodException unless there is exactly one constructor in the list
+	 */
+	public Constructor<T> constructor() throws NoSuchMethodException {
+		long start = Instrumentation.start();
+		try {
+			return only();
+		} finally {
+			Instrumentation.timed("DeclaredConstructors.constructor", start);
+		}
+	}
+
+	/**
+	 * The non throwing form of constructor(), for probing for optional constructors
+	 * @return the Java Constructor of the single Constructor in the list, or null unless there is exactly one constructor in the list
+	 */
+	public Constructor<T> findOne() {
+		return selection.only();
+	}
+
+	/**
+	 * @return a MethodHandle backed factory for the single Constructor in the list
+	 * @throws NoSuchMethodException unless there is exactly one constructor in the list
+	 * @throws IllegalAccessException if the constructor is not accessible, see setAccessible
+	 */
+	public InstanceFactory<T> factory() throws NoSuchMethodException, IllegalAccessException {
+		Constructor<T> constructor = only();
+		return MetadataCache.of(constructor.getDeclaringClass()).factory(constructor);
+	}
+
+	/**
+	 * @return an unmodifiable list of MethodHandle backed factories, one for each constructor in the list
+	 * @throws IllegalAccessException if any constructor is not accessible, see setAccessible
+	 */
+	public List<InstanceFactory<T>> factories() throws IllegalAccessException {
+		return Collections.unmodifiableList(InstanceFactory.from(selection.list()));
+	}
+
+	/**
+	 * Selects accessible copies of the constructors in the list, or the shared constructors again once flag is false.
+	 * The shared constructors are left untouched, the copies are made once per class and kept by the MetadataCache.
+	 * A constructor which cannot be made accessible, such as one in a package not opened to this library, throws
+	 * InaccessibleObjectException when it is read from the list, as AccessibleObject.setAccessible would.
+	 * @param flag accessibility flag
+	 * @return constructor list for chaining
+	 */
+	public DeclaredConstructors<T> setAccessible(boolean flag) {
+		if (!flag) {
+			return new DeclaredConstructors<T>(members, null);
+		}
+		return new DeclaredConstructors<T>(ClassMetadata.accessible(members.list()), members);
+	}
+
+	@Override
+	public Iterator<Constructor<T>> iterator() {
+		return selection.iterator();
+	}
+
+	@Override
+	public Spliterator<Constructor<T>> spliterator() {
+		return selection.spliterator();
+	}
+
+	/**
+	 * @return a sequential stream of the constructors in the list
+	 */
+	public Stream<Constructor<T>> stream() {
+		return selection.stream(false);
+	}
+
+	/**
+	 * The list is split by index rather than copied, so large lists can be filtered and mapped in parallel
+	 * @return a parallel stream of the constructors in the list
+	 */
+	public Stream<Constructor<T>> parallelStream() {
+		return selection.stream(true);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private DeclaredConstructors<T> where(Filter<Constructor<?>> filter) {
+		return new DeclaredConstructors<T>(selection.where((Filter)filter), selection == members ? null : members.where((Filter)filter));
+	}
+
+	private Constructor<T> only() throws NoSuchMethodException {
+		Constructor<T> found = selection.only();
+		if (found == null) {
+			Throw.Always().NoSuchMethod("Expected only one constructor. Found " + (selection.limit(1).isEmpty() ? "none" : "more than one"));
+		}
+		return found;
+	}
+}
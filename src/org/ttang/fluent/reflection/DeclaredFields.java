@@ -0,0 +1,224 @@
+package org.ttang.fluent.reflection;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+
+/**
+ * A fluent API for reflecting over Fields declared within a class.
+ * Filters are collected as the query is built and applied in a single pass by the terminal operations,
+ * such as fields(), field() and accessor(), so a query can be evaluated more than once.
+ * A query is immutable, each filter returns a new query sharing the earlier ones, so a partly built query
+ * can be kept in a static field and used from many threads.
+ * The accessors are MethodHandle backed and built once per field, so keep them rather than Field.get and Field.set on a hot path.
+ * <p>
+ * Sample usage:
+ *		List<FieldAccessor> accessors =
+ *		DeclaredFields
+ *		.from(Order.class)
+ *		.annotatedWith(Persistent.class)
+ *		.setAccessible(true)
+ *		.accessors();
+ * @author ttang
+ *
+ */
+public class DeclaredFields implements Iterable<Field> {
+
+	private final Selection<Field> selection; // read by the terminals, the accessible copies of the fields after setAccessible(true)
+	private final Selection<Field> members; // the same selection of the shared fields
+	private final ClassMetadata metadata; // set while the selection is still the unfiltered list of the class, for indexed lookups
+
+	private DeclaredFields(List<Field> fields, ClassMetadata metadata) {
+		this(Selection.of(fields), null, metadata);
+	}
+
+	private DeclaredFields(Selection<Field> selection, Selection<Field> members, ClassMetadata metadata) {
+		this.selection = selection;
+		this.members = members == null ? selection : members;
+		this.metadata = metadata;
+	}
+
+	/**
+	 * Fetches all of the fields declared by a class
+	 * @param type the enclosing class
+	 * @return the list for chaining
+	 */
+	public static DeclaredFields from(Class<?> type) {
+		long start = Instrumentation.start();
+		try {
+			ClassMetadata metadata = MetadataCache.lookup(type);
+			return new DeclaredFields(metadata.declaredFields(), metadata);
+		} finally {
+			Instrumentation.timed("DeclaredFields.from", start);
+		}
+	}
+
+	/* package */ static DeclaredFields of(List<Field> fields) {
+		return new DeclaredFields(fields, null);
+	}
+
+	/**
+	 * @return the Java unmodifiable list
+	 */
+	public List<Field> fields() {
+		return Collections.unmodifiableList(selection.list());
+	}
+
+	/**
+	 * Filters the list to contain fields annotated with annotationClass
+	 * @param annotationClass
+	 * @return the filtered list for chaining
+	 */
+	public DeclaredFields annotatedWith(Class<? extends Annotation> annotationClass) {
+		return where(Filters.fieldsAnnotatedWith(annotationClass));
+	}
+
+	/**
+	 * Filters the fields to contain the specified field names
+	 * @param names array of names
+	 * @return the filtered list for chaining
+	 */
+	public DeclaredFields named(String... names) {
+		if (metadata != null) {
+			Selection<Field> named = selection.over(NameIndex.select(selection.source(), metadata.declaredFieldIndex(), names));
+			return new DeclaredFields(named, selection == members ? null : Selection.of(NameIndex.select(members.list(), metadata.declaredFieldIndex(), names)), null);
+		}
+
+		return where(Filters.fieldsNamed(names));
+	}
+
+	/**
+	 * Filters the list to contain fields of a specific type
+	 * @param type the field type to filter on, such as int.class or String.class
+	 * @return the filtered list for chaining
+	 */
+	public DeclaredFields ofType(Class<?> type) {
+		return where(Filters.ofType(type));
+	}
+
+	/**
+	 * @return field list for chaining
+	 * @throws NoSuchFieldException throws unless there is at least one field in the list
+	 */
+	public DeclaredFields atLeastOne() throws NoSuchFieldException {
+		Throw.If(selection.limit(1).isEmpty()).NoSuchField("There are no fields");
+		return this;
+	}
+
+	/**
+	 * @return field list for chaining
+	 * @throws NoSuchFieldException unless there is exactly one field in the list
+	 */
+	public DeclaredFields exactlyOne() throws NoSuchFieldException {
+		only();
+		return this;
+	}
+
+	/**
+	 * @return the Java Field of the single Field in the list
+	 * @throws NoSuchFieldException unless there is exactly one field in the list
+	 */
+	public Field field() throws NoSuchFieldException {
+		long start = Instrumentation.start();
+		try {
+			return only();
+		} finally {
+			Instrumentation.timed("DeclaredFields.field", start);
+		}
+	}
+
+	/**
+	 * The non throwing form of field(), for probing for optional fields
+	 * @return the Java Field of the single Field in the list, or null unless there is exactly one field in the list
+	 */
+	public Field findOne() {
+		return selection.only();
+	}
+
+	/**
+	 * @return a MethodHandle backed accessor for the single Field in the list
+	 * @throws NoSuchFieldException unless there is exactly one field in the list
+	 * @throws IllegalAccessException if the field is not accessible, see setAccessible
+	 */
+	public FieldAccessor accessor() throws NoSuchFieldException, IllegalAccessException {
+		Field field = only();
+		return MetadataCache.of(field.getDeclaringClass()).accessor(field);
+	}
+
+	/**
+	 * @return an unmodifiable list of MethodHandle backed accessors, one for each field in the list
+	 * @throws IllegalAccessException if any field is not accessible, see setAccessible
+	 */
+	public List<FieldAccessor> accessors() throws IllegalAccessException {
+		return Collections.unmodifiableList(FieldAccessor.from(selection.list()));
+	}
+
+	/**
+	 * @return a copier for the instance fields in the list, static fields are left out
+	 * @throws IllegalAccessException if any field is not accessible, or is final, see setAccessible
+	 */
+	public FieldCopier copier() throws IllegalAccessException {
+		return FieldCopier.from(selection.list());
+	}
+
+	/**
+	 * Selects accessible copies of the fields in the list, which also allows final instance fields to be set,
+	 * or the shared fields again once flag is false.
+	 * The shared fields are left untouched, the copies are made once per class and kept by the MetadataCache.
+	 * A field which cannot be made accessible, such as one in a package not opened to this library, throws
+	 * InaccessibleObjectException when it is read from the list, as AccessibleObject.setAccessible would.
+	 * @param flag accessibility flag
+	 * @return fields list for chaining
+	 */
+	public DeclaredFields setAccessible(boolean flag) {
+		if (!flag) {
+			return new DeclaredFields(members, null, metadata);
+		}
+		if (metadata != null) {
+			// the unfiltered fields of the class, whose accessible copies are kept in the same order
+			return new DeclaredFields(metadata.accessibleDeclaredFields(), members, metadata);
+		}
+		return new DeclaredFields(ClassMetadata.accessible(members.list()), members, null);
+	}
+
+	@Override
+	public Iterator<Field> iterator() {
+		return selection.iterator();
+	}
+
+	@Override
+	public Spliterator<Field> spliterator() {
+		return selection.spliterator();
+	}
+
+	/**
+	 * @return a sequential stream of the fields in the list
+	 */
+	public Stream<Field> stream() {
+		return selection.stream(false);
+	}
+
+	/**
+	 * The list is split by index rather than copied, so large lists can be filtered and mapped in parallel
+	 * @return a parallel stream of the fields in the list
+	 */
+	public Stream<Field> parallelStream() {
+		return selection.stream(true);
+	}
+
+	private DeclaredFields where(Filter<Field> filter) {
+		return new DeclaredFields(selection.where(filter), selection == members ? null : members.where(filter), null);
+	}
+
+	private Field only() throws NoSuchFieldException {
+		Field found = selection.only();
+		if (found == null) {
+			Throw.Always().NoSuchField("Expected only one field. Found " + (selection.limit(1).isEmpty() ? "none" : "more than one"));
+		}
+		return found;
+	}
+}
@@ -2,14 +2,19 @@ package org.ttang.fluent.reflection;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * A fluent API for reflecting over Methods declared within a class.
+ * Filters are collected as the query is built and applied in a single pass by the terminal operations,
+ * such as methods(), method() and iterator(), so a query can be evaluated more than once.
+ * A query is immutable, each filter returns a new query sharing the earlier ones, so a partly built query
+ * can be kept in a static field and used from many threads.
  * <p>
  * Sample usage:
  *		List<Method> methods =
@@ -23,10 +28,20 @@ import java.util.List;
  */
 public class DeclaredMethods implements Iterable<Method> {
 	
-	private List<Method> methods;
+	private final Selection<Method> selection; // read by the terminals, the accessible copies of the methods after setAccessible(true)
+	private final Selection<Method> members; // the same selection of the shared methods
+	private final ClassMetadata metadata; // set while the selection is still the unfiltered list of the class, for indexed lookups
+	private final ClassMetadata hierarchy; // the class whose inherited methods are included, and see the annotations of the methods they override in its supertypes, or null
 	
-	private DeclaredMethods(Method[] methods) {
-		this.methods = Arrays.asList(methods);
+	private DeclaredMethods(List<Method> methods, ClassMetadata metadata, ClassMetadata hierarchy) {
+		this(Selection.of(methods), null, metadata, hierarchy);
+	}
+
+	private DeclaredMethods(Selection<Method> selection, Selection<Method> members, ClassMetadata metadata, ClassMetadata hierarchy) {
+		this.selection = selection;
+		this.members = members == null ? selection : members;
+		this.metadata = metadata;
+		this.hierarchy = hierarchy;
 	}
 
 	/**
@@ -35,14 +50,44 @@ public class DeclaredMethods implements Iterable<Method> {
 	 * @return the list for chaining
 	 */
 	public static DeclaredMethods from(Class<?> type) {
-		return new DeclaredMethods(type.getDeclaredMethods());
+		long start = Instrumentation.start();
+		try {
+			ClassMetadata metadata = MetadataCache.lookup(type);
+			return new DeclaredMethods(metadata.declaredMethods(), metadata, null);
+		} finally {
+			Instrumentation.timed("DeclaredMethods.from", start);
+		}
+	}
+
+	/**
+	 * Fetches the methods of a class together with those it inherits from its superclasses and interfaces.
+	 * Overridden methods are left out in favour of the overriding method, which is treated as annotated
+	 * with the annotations of the methods it overrides by annotatedWith. Inherited methods which could never be made accessible,
+	 * such as the protected methods of Object, are left out, so the whole list can be made accessible.
+	 * <p>
+	 * Sample usage: DeclaredMethods.fromHierarchy(RestService.class).annotatedWith(OnEvent.class).methods()
+	 * @param type the class at the bottom of the hierarchy
+	 * @return the list for chaining
+	 */
+	public static DeclaredMethods fromHierarchy(Class<?> type) {
+		long start = Instrumentation.start();
+		try {
+			ClassMetadata metadata = MetadataCache.lookup(type);
+			return new DeclaredMethods(metadata.hierarchyMethods(), metadata, metadata);
+		} finally {
+			Instrumentation.timed("DeclaredMethods.fromHierarchy", start);
+		}
+	}
+
+	/* package */ static DeclaredMethods of(List<Method> methods) {
+		return new DeclaredMethods(methods, null, null);
 	}
 
 	/**
 	 * @return the Java unmodifiable list
 	 */
 	public List<Method> methods() {
-		return Collections.unmodifiableList(methods);
+		return Collections.unmodifiableList(selection.list());
 	}
 
 	/**
@@ -51,32 +96,58 @@ public class DeclaredMethods implements Iterable<Method> {
 	 * @return the filtered list for chaining
 	 */
 	public DeclaredMethods annotatedWith(Class<? extends Annotation> annotationClass) {
-		List<Method> filteredMethods = new ArrayList<Method>();
-		for (Method method : methods ) {
-			if (method.isAnnotationPresent(annotationClass)) {
-				filteredMethods.add(method);
-			}
-		}
-
-		this.methods = filteredMethods;
-		return this;
+		return where(Filters.annotatedWithAny(hierarchy, annotationClass));
 	}
 	
+	/**
+	 * Filters the list to contain methods annotated with at least one of the types
+	 * <p>
+	 * Sample usage: DeclaredMethods.from(RestService.class).annotatedWithAny(OnEvent.class, OnTimer.class)
+	 * @param types the annotations to look for
+	 * @return the filtered list for chaining
+	 */
+	@SafeVarargs
+	public final DeclaredMethods annotatedWithAny(Class<? extends Annotation>... types) {
+		return where(Filters.annotatedWithAny(hierarchy, types));
+	}
+
+	/**
+	 * Filters the list to contain methods annotated with every one of the types
+	 * <p>
+	 * Sample usage: DeclaredMethods.from(RestService.class).annotatedWithAll(OnEvent.class, Transactional.class)
+	 * @param types the annotations to look for
+	 * @return the filtered list for chaining
+	 */
+	@SafeVarargs
+	public final DeclaredMethods annotatedWithAll(Class<? extends Annotation>... types) {
+		return where(Filters.annotatedWithAll(hierarchy, types));
+	}
+
+	/**
+	 * Filters the list to contain methods annotated with annotationClass, or with an annotation which is itself
+	 * annotated with annotationClass, however indirectly. A composed annotation such as @Endpoint, annotated with @OnEvent, matches OnEvent.class.
+	 * <p>
+	 * Sample usage: DeclaredMethods.from(RestService.class).metaAnnotatedWith(OnEvent.class)
+	 * @param annotationClass the annotation, or meta-annotation, to look for
+	 * @return the filtered list for chaining
+	 */
+	public DeclaredMethods metaAnnotatedWith(Class<? extends Annotation> annotationClass) {
+		return where(Filters.metaAnnotatedWith(annotationClass, hierarchy));
+	}
+
 	/**
 	 * Filters the methods to contain the specified method names
 	 * @param names array of names
 	 * @return the filtered list for chaining
 	 */
 	public DeclaredMethods named(String... names) {
-		List<Method> filteredMethods = new ArrayList<Method>();
-		for (Method method : methods ) {
-			if (ArrayUtils.contains(names,method.getName())) {
-				filteredMethods.add(method);
-			}
+		if (metadata != null) {
+			Map<String, int[]> index = hierarchy != null ? metadata.hierarchyMethodIndex() : metadata.declaredMethodIndex();
+			Selection<Method> named = selection.over(NameIndex.select(selection.source(), index, names));
+			return new DeclaredMethods(named, selection == members ? null : Selection.of(NameIndex.select(members.list(), index, names)), null, hierarchy);
 		}
 
-		this.methods = filteredMethods;
-		return this;
+		return where(Filters.methodsNamed(names));
 	}
 	
 	/**
@@ -85,15 +156,7 @@ public class DeclaredMethods implements Iterable<Method> {
 	 * @return the filtered list for chaining
 	 */
 	public DeclaredMethods withReturnType(Class<?> returnType) {
-		List<Method> filteredMethods = new ArrayList<Method>();
-		for (Method method : methods ) {
-			if (method.getReturnType().equals(returnType)) {
-				filteredMethods.add(method);
-			}
-		}
-
-		this.methods = filteredMethods;
-		return this;
+		return where(Filters.withReturnType(returnType));
 	}
 	
 	/**
@@ -102,16 +165,7 @@ public class DeclaredMethods implements Iterable<Method> {
 	 * @return the filtered list for chaining
 	 */
 	public DeclaredMethods withParameterTypes(Class<?>... parameterTypes) {
-		List<Method> filteredMethods = new ArrayList<Method>();
-		for (Method method : methods ) {
-			if (Arrays.equals(method.getParameterTypes(),parameterTypes)) {
-				filteredMethods.add(method);
-			}
-		}
-
-		this.methods = filteredMethods;
-		return this;
-		
+		return where(Filters.withParameterTypes(parameterTypes.clone()));
 	}
 	
 	/**
@@ -119,7 +173,7 @@ public class DeclaredMethods implements Iterable<Method> {
 	 * @throws NoSuchMethodException throws unless there is at least one method in the list
 	 */
 	public DeclaredMethods atLeastOne() throws NoSuchMethodException {
-		Throw.Unless(methods.size()>1).NoSuchMethod("There are no methods");
+		Throw.If(selection.limit(1).isEmpty()).NoSuchMethod("There are no methods");
 		return this;
 	}
 	
@@ -128,7 +182,7 @@ public class DeclaredMethods implements Iterable<Method> {
 	 * @throws NoSuchMethodException unless there is exactly one method in the list
 	 */
 	public DeclaredMethods exactlyOne() throws NoSuchMethodException {
-		Throw.Unless(methods.size()==1).NoSuchMethod("Expected only one method. Found " + methods.size());
+		only();
 		return this;
 	}
 
@@ -137,24 +191,94 @@ public class DeclaredMethods implements Iterable<Method> {
 	 * @throws NoSuchMethodException unless there is exactly one method in the list
 	 */
 	public Method method() throws NoSuchMethodException {
-		return exactlyOne().methods.get(0);
+		long start = Instrumentation.start();
+		try {
+			return only();
+		} finally {
+			Instrumentation.timed("DeclaredMethods.method", start);
+		}
+	}
+
+	/**
+	 * The non throwing form of method(), for probing for optional methods
+	 * @return the Java Method of the single Method in the list, or null unless there is exactly one method in the list
+	 */
+	public Method findOne() {
+		return selection.only();
 	}
 	
 	/**
-	 * Sets Accessible on all methods in the list
+	 * @return a MethodHandle backed invoker for the single Method in the list
+	 * @throws NoSuchMethodException unless there is exactly one method in the list
+	 * @throws IllegalAccessException if the method is not accessible, see setAccessible
+	 */
+	public MethodInvoker invoker() throws NoSuchMethodException, IllegalAccessException {
+		Method method = method();
+		return MetadataCache.of(method.getDeclaringClass()).invoker(method);
+	}
+
+	/**
+	 * @return an unmodifiable list of MethodHandle backed invokers, one for each method in the list
+	 * @throws IllegalAccessException if any method is not accessible, see setAccessible
+	 */
+	public List<MethodInvoker> invokers() throws IllegalAccessException {
+		return Collections.unmodifiableList(MethodInvoker.from(selection.list()));
+	}
+
+	/**
+	 * Selects accessible copies of the methods in the list, or the shared methods again once flag is false.
+	 * The shared methods are left untouched, the copies are made once per class and kept by the MetadataCache.
+	 * A method which cannot be made accessible, such as one in a package not opened to this library, throws
+	 * InaccessibleObjectException when it is read from the list, as AccessibleObject.setAccessible would.
 	 * @param flag accessibility flag
 	 * @return methods list for chaining
 	 */
 	public DeclaredMethods setAccessible(boolean flag) {
-		for (Method method : methods) {
-			method.setAccessible(flag);
+		if (!flag) {
+			return new DeclaredMethods(members, null, metadata, hierarchy);
 		}
-		
-		return this;
+		if (metadata != null) {
+			// the unfiltered methods of the class, whose accessible copies are kept in the same order
+			Selection<Method> accessible = hierarchy != null ? metadata.accessibleHierarchyMethods() : metadata.accessibleDeclaredMethods();
+			return new DeclaredMethods(accessible, members, metadata, hierarchy);
+		}
+		return new DeclaredMethods(ClassMetadata.accessible(members.list()), members, null, hierarchy);
 	}
 
 	@Override
 	public Iterator<Method> iterator() {
-		return Collections.unmodifiableList(methods).iterator();
+		return selection.iterator();
+	}
+
+	@Override
+	public Spliterator<Method> spliterator() {
+		return selection.spliterator();
+	}
+
+	/**
+	 * @return a sequential stream of the methods in the list
+	 */
+	public Stream<Method> stream() {
+		return selection.stream(false);
+	}
+
+	/**
+	 * The list is split by index rather than copied, so large lists can be filtered and mapped in parallel
+	 * @return a parallel stream of the methods in the list
+	 */
+	public Stream<Method> parallelStream() {
+		return selection.stream(true);
+	}
+
+	private DeclaredMethods where(Filter<Method> filter) {
+		return new DeclaredMethods(selection.where(filter), selection == members ? null : members.where(filter), null, hierarchy);
+	}
+
+	private Method only() throws NoSuchMethodException {
+		Method found = selection.only();
+		if (found == null) {
+			Throw.Always().NoSuchMethod("Expected only one method. Found " + (selection.limit(1).isEmpty() ? "none" : "more than one"));
+		}
+		return found;
 	}
 }
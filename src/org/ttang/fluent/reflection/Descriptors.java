@@ -0,0 +1,130 @@
+package org.ttang.fluent.reflection;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conversions between JVM type descriptors, such as "Ljava/lang/String;", and the type names used by Class.getName()
+ * @author ttang
+ *
+ */
+/* package */ class Descriptors {
+	private static final Map<String, Class<?>> primitives = new HashMap<String, Class<?>>();
+	private static final Map<String, Class<?>> primitivesByDescriptor = new HashMap<String, Class<?>>();
+	private static final Map<Class<?>, String> primitiveDescriptors = new HashMap<Class<?>, String>();
+
+	static {
+		Class<?>[] types = { boolean.class, byte.class, char.class, short.class, int.class, long.class, float.class, double.class, void.class };
+		String[] descriptors = { "Z", "B", "C", "S", "I", "J", "F", "D", "V" };
+		for (int i = 0; i < types.length; i++) {
+			primitives.put(types[i].getName(), types[i]);
+			primitivesByDescriptor.put(descriptors[i], types[i]);
+			primitiveDescriptors.put(types[i], descriptors[i]);
+		}
+	}
+
+	private Descriptors() {
+	}
+
+	/**
+	 * @param descriptor a field descriptor such as "I", "Ljava/lang/String;" or "[Ljava/lang/String;"
+	 * @return the type name as Class.getName() would give it, such as "int", "java.lang.String" or "[Ljava.lang.String;"
+	 */
+	/* package */ static String typeName(String descriptor) {
+		if (descriptor.length() == 1) {
+			return primitivesByDescriptor.get(descriptor).getName();
+		}
+		if (descriptor.charAt(0) == 'L') {
+			return descriptor.substring(1, descriptor.length() - 1).replace('/', '.');
+		}
+		return descriptor.replace('/', '.');
+	}
+
+	/**
+	 * @param methodDescriptor such as "(ILjava/lang/String;)V"
+	 * @return the type names of the parameters
+	 */
+	/* package */ static List<String> parameterTypeNames(String methodDescriptor) {
+		List<String> names = new ArrayList<String>();
+		int position = 1;
+		while (methodDescriptor.charAt(position) != ')') {
+			int end = end(methodDescriptor, position);
+			names.add(typeName(methodDescriptor.substring(position, end)));
+			position = end;
+		}
+		return names;
+	}
+
+	/**
+	 * @param methodDescriptor such as "(ILjava/lang/String;)V"
+	 * @return the type name of the return type
+	 */
+	/* package */ static String returnTypeName(String methodDescriptor) {
+		return typeName(methodDescriptor.substring(methodDescriptor.indexOf(')') + 1));
+	}
+
+	/**
+	 * @param type any type
+	 * @return the field descriptor of type
+	 */
+	/* package */ static String descriptor(Class<?> type) {
+		if (type.isPrimitive()) {
+			return primitiveDescriptors.get(type);
+		}
+		if (type.isArray()) {
+			return type.getName().replace('.', '/');
+		}
+		return "L" + type.getName().replace('.', '/') + ";";
+	}
+
+	/**
+	 * @param method any method
+	 * @return the method descriptor of method
+	 */
+	/* package */ static String descriptor(Method method) {
+		StringBuilder descriptor = new StringBuilder("(");
+		for (Class<?> parameterType : method.getParameterTypes()) {
+			descriptor.append(descriptor(parameterType));
+		}
+		return descriptor.append(')').append(descriptor(method.getReturnType())).toString();
+	}
+
+	/**
+	 * Finds a declared method by its name and descriptor, through the MetadataCache
+	 * @param type the declaring class
+	 * @param name the method name
+	 * @param methodDescriptor such as "(ILjava/lang/String;)V"
+	 * @return the method, or null if type does not declare it
+	 */
+	/* package */ static Method method(Class<?> type, String name, String methodDescriptor) {
+		ClassMetadata metadata = MetadataCache.of(type);
+		for (Method method : NameIndex.select(metadata.declaredMethods(), metadata.declaredMethodIndex(), name)) {
+			if (descriptor(method).equals(methodDescriptor)) {
+				return method;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Loads a type by the name Class.getName() would give it, without initializing it
+	 * @param typeName such as "int" or "java.lang.String"
+	 * @param loader the loader to load with
+	 * @return the type
+	 * @throws ClassNotFoundException if the type could not be loaded
+	 */
+	/* package */ static Class<?> load(String typeName, ClassLoader loader) throws ClassNotFoundException {
+		Class<?> primitive = primitives.get(typeName);
+		return primitive != null ? primitive : Class.forName(typeName, false, loader);
+	}
+
+	private static int end(String descriptor, int position) {
+		while (descriptor.charAt(position) == '[') {
+			position++;
+		}
+		return descriptor.charAt(position) == 'L' ? descriptor.indexOf(';', position) + 1 : position + 1;
+	}
+}
@@ -0,0 +1,280 @@
+package org.ttang.fluent.reflection;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Routes events to the handler methods of a class, the methods annotated with a handler annotation such as {@literal @}OnEvent.
+ * Each handler takes a single parameter, the event, and is pre-bound to its target as a MethodHandle when the table is built,
+ * so dispatching is a map lookup followed by an invokeExact per handler, with nothing allocated per event.
+ * <p>
+ * A table routes either by the parameter type of the handlers, where an event reaches every handler whose parameter
+ * type it is an instance of, or by the value of a property of the handler annotation, such as {@literal @}OnEvent(state="OPEN").
+ * A property whose value is an array routes each of its elements. The order in which the handlers reached by one event are invoked is not specified.
+ * Tables are immutable, build one per target and keep it. The handlers an event class reaches are worked out on its first dispatch
+ * and kept by the table, so they are discarded with it and nothing bound to the target is left on the event classes.
+ * <p>
+ * Sample usage:
+ *		DispatchTable byType = DispatchTable.byParameterType(restService, OnEvent.class);
+ *		byType.dispatch(new OrderPlaced());
+ *
+ *		DispatchTable byState = DispatchTable.byProperty(restService, OnEvent.class, "state");
+ *		byState.dispatch("OPEN", event);
+ * @author ttang
+ *
+ */
+public class DispatchTable {
+	private static final MethodHandle[] NO_HANDLERS = new MethodHandle[0];
+	private static final MethodType HANDLER_TYPE = MethodType.methodType(void.class, Object.class);
+
+	private final Map<Object, MethodHandle[]> routes; // by parameter type or property value
+	private final ConcurrentMap<Class<?>, MethodHandle[]> resolved = new ConcurrentHashMap<Class<?>, MethodHandle[]>(); // event class to the handlers it reaches, for tables routed by type
+	private final boolean byType;
+
+	private DispatchTable(Map<Object, MethodHandle[]> routes, boolean byType) {
+		this.routes = routes;
+		this.byType = byType;
+	}
+
+	/**
+	 * Routes events to the handlers of target by the type of their single parameter
+	 * @param target the object whose handler methods, declared or inherited, are invoked
+	 * @param handlerAnnotation the annotation marking the handler methods
+	 * @return the table
+	 * @throws IllegalAccessException if a handler is not accessible
+	 * @throws IllegalArgumentException if a handler does not take exactly one parameter, or takes a primitive
+	 */
+	public static DispatchTable byParameterType(Object target, Class<? extends Annotation> handlerAnnotation) throws IllegalAccessException {
+		return byParameterType(target.getClass(), target, handlerAnnotation);
+	}
+
+	/**
+	 * Routes events to the static handlers of a class by the type of their single parameter
+	 * @param type the class whose static handler methods are invoked
+	 * @param handlerAnnotation the annotation marking the handler methods
+	 * @return the table
+	 * @throws IllegalAccessException if a handler is not accessible
+	 * @throws IllegalArgumentException if a handler is not static, does not take exactly one parameter, or takes a primitive
+	 */
+	public static DispatchTable byParameterType(Class<?> type, Class<? extends Annotation> handlerAnnotation) throws IllegalAccessException {
+		return byParameterType(type, null, handlerAnnotation);
+	}
+
+	/**
+	 * Routes events to the handlers of target by the value of a property of the handler annotation
+	 * @param target the object whose handler methods, declared or inherited, are invoked
+	 * @param handlerAnnotation the annotation marking the handler methods
+	 * @param property the property of handlerAnnotation whose value is the routing key
+	 * @return the table
+	 * @throws NoSuchPropertyException if handlerAnnotation has no such property
+	 * @throws NoSuchValueException if the value of the property cannot be read
+	 * @throws IllegalAccessException if a handler is not accessible
+	 * @throws IllegalArgumentException if a handler does not take exactly one parameter
+	 */
+	public static DispatchTable byProperty(Object target, Class<? extends Annotation> handlerAnnotation, String property)
+			throws NoSuchPropertyException, NoSuchValueException, IllegalAccessException {
+		return byProperty(target.getClass(), target, handlerAnnotation, property);
+	}
+
+	/**
+	 * Routes events to the static handlers of a class by the value of a property of the handler annotation
+	 * @param type the class whose static handler methods are invoked
+	 * @param handlerAnnotation the annotation marking the handler methods
+	 * @param property the property of handlerAnnotation whose value is the routing key
+	 * @return the table
+	 * @throws NoSuchPropertyException if handlerAnnotation has no such property
+	 * @throws NoSuchValueException if the value of the property cannot be read
+	 * @throws IllegalAccessException if a handler is not accessible
+	 * @throws IllegalArgumentException if a handler is not static or does not take exactly one parameter
+	 */
+	public static DispatchTable byProperty(Class<?> type, Class<? extends Annotation> handlerAnnotation, String property)
+			throws NoSuchPropertyException, NoSuchValueException, IllegalAccessException {
+		return byProperty(type, null, handlerAnnotation, property);
+	}
+
+	/**
+	 * @return the routing keys, parameter types or property values
+	 */
+	public Set<Object> keys() {
+		return Collections.unmodifiableSet(routes.keySet());
+	}
+
+	/**
+	 * Invokes every handler whose parameter type event is an instance of. Only for tables routed by parameter type.
+	 * Unlike Method.invoke, exceptions thrown by a handler are not wrapped, and stop the dispatch.
+	 * @param event the event
+	 * @return the number of handlers invoked, 0 if the event is not handled
+	 * @throws IllegalStateException if the table is routed by property
+	 * @throws Throwable anything thrown by a handler
+	 */
+	public int dispatch(Object event) throws Throwable {
+		if (!byType) {
+			throw new IllegalStateException("The table is routed by property, dispatch with a key");
+		}
+		return invoke(handlers(event.getClass()), event);
+	}
+
+	/**
+	 * Invokes the handlers routed to by key
+	 * @param key a property value, or for tables routed by parameter type, the Class of the event
+	 * @param event the event
+	 * @return the number of handlers invoked, 0 if the key is not handled
+	 * @throws Throwable anything thrown by a handler
+	 */
+	public int dispatch(Object key, Object event) throws Throwable {
+		return invoke(handlers(key), event);
+	}
+
+	/**
+	 * Dispatches each of the events in turn, routing each by its own type. Only for tables routed by parameter type.
+	 * @param events the events
+	 * @return the number of handlers invoked in total
+	 * @throws IllegalStateException if the table is routed by property
+	 * @throws Throwable anything thrown by a handler
+	 */
+	public int dispatchAll(List<?> events) throws Throwable {
+		int invoked = 0;
+		for (int i = 0; i < events.size(); i++) {
+			invoked += dispatch(events.get(i));
+		}
+		return invoked;
+	}
+
+	/**
+	 * Dispatches each of the events to the handlers routed to by key, which is looked up once for the batch
+	 * @param key a property value, or for tables routed by parameter type, the Class of the events
+	 * @param events the events
+	 * @return the number of handlers invoked in total
+	 * @throws Throwable anything thrown by a handler
+	 */
+	public int dispatchAll(Object key, List<?> events) throws Throwable {
+		MethodHandle[] handlers = handlers(key);
+		int invoked = 0;
+		for (int i = 0; i < events.size(); i++) {
+			invoked += invoke(handlers, events.get(i));
+		}
+		return invoked;
+	}
+
+	private MethodHandle[] handlers(Object key) {
+		if (!byType) {
+			MethodHandle[] handlers = routes.get(key);
+			return handlers == null ? NO_HANDLERS : handlers;
+		}
+		Class<?> eventClass = (Class<?>)key;
+		MethodHandle[] handlers = resolved.get(eventClass);
+		if (handlers == null) {
+			handlers = resolve(eventClass);
+			MethodHandle[] existing = resolved.putIfAbsent(eventClass, handlers);
+			if (existing != null) {
+				handlers = existing;
+			}
+		}
+		return handlers;
+	}
+
+	/**
+	 * @return the handlers of every parameter type which eventClass is assignable to
+	 */
+	private MethodHandle[] resolve(Class<?> eventClass) {
+		List<MethodHandle> handlers = new ArrayList<MethodHandle>();
+		for (Map.Entry<Object, MethodHandle[]> route : routes.entrySet()) {
+			if (((Class<?>)route.getKey()).isAssignableFrom(eventClass)) {
+				Collections.addAll(handlers, route.getValue());
+			}
+		}
+		return handlers.isEmpty() ? NO_HANDLERS : handlers.toArray(new MethodHandle[handlers.size()]);
+	}
+
+	private static int invoke(MethodHandle[] handlers, Object event) throws Throwable {
+		for (int i = 0; i < handlers.length; i++) {
+			handlers[i].invokeExact(event);
+		}
+		return handlers.length;
+	}
+
+	private static DispatchTable byParameterType(Class<?> type, Object target, Class<? extends Annotation> handlerAnnotation) throws IllegalAccessException {
+		Map<Object, List<MethodHandle>> routes = new LinkedHashMap<Object, List<MethodHandle>>();
+		for (Method method : handlerMethods(type, handlerAnnotation)) {
+			Class<?> parameterType = method.getParameterTypes()[0];
+			if (parameterType.isPrimitive()) {
+				throw new IllegalArgumentException(method.getName() + " must take an object as its event, not " + parameterType.getName());
+			}
+			route(routes, parameterType, handle(method, target));
+		}
+		return new DispatchTable(freeze(routes), true);
+	}
+
+	private static DispatchTable byProperty(Class<?> type, Object target, Class<? extends Annotation> handlerAnnotation, String property)
+			throws NoSuchPropertyException, NoSuchValueException, IllegalAccessException {
+		Throw.Unless(MetadataCache.of(handlerAnnotation).declaredMethodIndex().containsKey(property))
+			.NoSuchProperty(property + " is not a property of " + handlerAnnotation.getSimpleName());
+		ClassMetadata metadata = MetadataCache.of(type);
+		Map<Object, List<MethodHandle>> routes = new LinkedHashMap<Object, List<MethodHandle>>();
+		for (Method method : handlerMethods(type, handlerAnnotation)) {
+			// resolved against type, as the handlers were selected, so an inherited method sees the interfaces type implements
+			Object key = BoundAnnotations.of(metadata.hierarchyAnnotations(method), metadata).matching(handlerAnnotation).properties().named(property).value();
+			MethodHandle handle = handle(method, target);
+			if (key.getClass().isArray()) {
+				for (int i = 0; i < Array.getLength(key); i++) {
+					route(routes, Array.get(key, i), handle);
+				}
+			} else {
+				route(routes, key, handle);
+			}
+		}
+		return new DispatchTable(freeze(routes), false);
+	}
+
+	private static List<Method> handlerMethods(Class<?> type, Class<? extends Annotation> handlerAnnotation) {
+		List<Method> methods = DeclaredMethods.fromHierarchy(type).annotatedWith(handlerAnnotation).setAccessible(true).methods();
+		for (Method method : methods) {
+			if (method.getParameterTypes().length != 1) {
+				throw new IllegalArgumentException(method.getName() + " must take exactly one parameter, the event");
+			}
+		}
+		return methods;
+	}
+
+	/**
+	 * @return a handle of type (Object)void, bound to target unless the method is static
+	 */
+	private static MethodHandle handle(Method method, Object target) throws IllegalAccessException {
+		MethodInvoker invoker = MetadataCache.of(method.getDeclaringClass()).invoker(method);
+		if (!Modifier.isStatic(method.getModifiers())) {
+			if (target == null) {
+				throw new IllegalArgumentException(method.getName() + " is not static, build the table from an instance");
+			}
+			invoker = invoker.bind(target);
+		}
+		return invoker.handle().asType(HANDLER_TYPE);
+	}
+
+	private static void route(Map<Object, List<MethodHandle>> routes, Object key, MethodHandle handle) {
+		List<MethodHandle> handles = routes.get(key);
+		if (handles == null) {
+			routes.put(key, handles = new ArrayList<MethodHandle>());
+		}
+		handles.add(handle);
+	}
+
+	private static Map<Object, MethodHandle[]> freeze(Map<Object, List<MethodHandle>> routes) {
+		Map<Object, MethodHandle[]> frozen = new LinkedHashMap<Object, MethodHandle[]>();
+		for (Map.Entry<Object, List<MethodHandle>> route : routes.entrySet()) {
+			frozen.put(route.getKey(), route.getValue().toArray(new MethodHandle[route.getValue().size()]));
+		}
+		return frozen;
+	}
+}
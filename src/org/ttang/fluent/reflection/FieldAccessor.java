@@ -0,0 +1,374 @@
+package org.ttang.fluent.reflection;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pre-built getter and setter for a single Field, backed by MethodHandles rather than Field.get and Field.set.
+ * Access is checked once, when the accessor is built, and the primitive forms such as getInt and setInt read and write without boxing.
+ * Accessors are built once per field and shared, and static fields ignore the target, which may be null.
+ * <p>
+ * Sample Usage:
+ *		FieldAccessor count =
+ *		DeclaredFields
+ *		.from(Order.class)
+ *		.named("count")
+ *		.setAccessible(true)
+ *		.accessor();
+ *		count.setInt(order, count.getInt(order) + 1);
+ * @author ttang
+ *
+ */
+public class FieldAccessor {
+	private final Field field;
+	private final MethodHandle getter; // (Object)type
+	private final MethodHandle setter; // (Object,type)void, or null for a final field
+	private final MethodHandle genericGetter;
+	private final MethodHandle genericSetter;
+
+	private FieldAccessor(Field field, MethodHandle getter, MethodHandle setter) {
+		this.field = field;
+		this.getter = getter;
+		this.setter = setter;
+		this.genericGetter = getter.asType(MethodType.methodType(Object.class, Object.class));
+		this.genericSetter = setter == null ? null : setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+	}
+
+	/* package */ static List<FieldAccessor> from(List<Field> fields) throws IllegalAccessException {
+		List<FieldAccessor> accessors = new ArrayList<FieldAccessor>();
+		for (Field field : fields) {
+			accessors.add(MetadataCache.of(field.getDeclaringClass()).accessor(field));
+		}
+		return accessors;
+	}
+
+	/* package */ static FieldAccessor from(Field field) throws IllegalAccessException {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		boolean isStatic = Modifier.isStatic(field.getModifiers());
+		MethodHandle getter = lookup.unreflectGetter(field);
+		getter = isStatic ? MethodHandles.dropArguments(getter, 0, Object.class)
+				: getter.asType(MethodType.methodType(field.getType(), Object.class));
+
+		MethodHandle setter;
+		try {
+			setter = lookup.unreflectSetter(field);
+			setter = isStatic ? MethodHandles.dropArguments(setter, 0, Object.class)
+					: setter.asType(MethodType.methodType(void.class, Object.class, field.getType()));
+		} catch (IllegalAccessException e) {
+			if (!Modifier.isFinal(field.getModifiers())) {
+				throw e;
+			}
+			setter = null; // final fields can only be read
+		}
+		return new FieldAccessor(field, getter, setter);
+	}
+
+	/**
+	 * @return the Java Field being accessed
+	 */
+	public Field field() {
+		return field;
+	}
+
+	/**
+	 * The exactly typed getter, of type (Object)fieldType, for callers which want to use invokeExact
+	 * @return the getter handle
+	 */
+	public MethodHandle getter() {
+		return getter;
+	}
+
+	/**
+	 * The exactly typed setter, of type (Object,fieldType)void, for callers which want to use invokeExact
+	 * @return the setter handle, or null if the field is final and cannot be set
+	 */
+	public MethodHandle setter() {
+		return setter;
+	}
+
+	/**
+	 * @return true if the field can be set, which a final field cannot be unless made accessible
+	 */
+	public boolean isSettable() {
+		return setter != null;
+	}
+
+	/**
+	 * @param target the object holding the field, ignored for a static field
+	 * @return the value, primitives are boxed
+	 */
+	public Object get(Object target) {
+		try {
+			return genericGetter.invokeExact(target);
+		} catch (Throwable e) {
+			throw unchecked(e);
+		}
+	}
+
+	/**
+	 * @param target the object holding the field, ignored for a static field
+	 * @param value the new value, primitives are unboxed
+	 * @throws UnsupportedOperationException if the field is final
+	 */
+	public void set(Object target, Object value) {
+		settable();
+		try {
+			genericSetter.invokeExact(target, value);
+		} catch (Throwable e) {
+			throw unchecked(e);
+		}
+	}
+
+	/**
+	 * @param target the object holding the field, ignored for a static field
+	 * @return the value of an int field
+	 * @throws java.lang.invoke.WrongMethodTypeException if the field is not an int
+	 */
+	public int getInt(Object target) {
+		try {
+			return (int)getter.invokeExact(target);
+		} catch (Throwable e) {
+			throw unchecked(e);
+		}
+	}
+
+	/**
+	 * @param target the object holding the field, ignored for a static field
+	 * @param value the new value of an int field
+	 * @throws java.lang.invoke.WrongMethodTypeException if the field is not an int
+	 * @throws UnsupportedOperationException if the field is final
+	 */
+	public void setInt(Object target, int value) {
+		settable();
+		try {
+			setter.invokeExact(target, value);
+		} catch (Throwable e) {
+			throw unchecked(e);
+		}
+	}
+
+	/**
+	 * @param target the object holding the field, ignored for a static field
+	 * @return the value of a long field
+	 * @throws java.lang.invoke.WrongMethodTypeException if the field is not a long
+	 */
+	public long getLong(Object target) {
+		try {
+			return (long)getter.invokeExact(target);
+		} catch (Throwable e) {
+			throw unchecked(e);
+		}
+	}
+
+	/**
+	 * @param target the object holding the field, ignored for a static field
+	 * @param value the new value of a long field
+	 * @throws java.lang.invoke.WrongMethodTypeException if the field is not a long
+	 * @throws UnsupportedOperationException if the field is final
+	 */
+	public void setLong(Object target, long value) {
+		settable();
+		try {
+			setter.invokeExact(target, value);
+		} catch (Throwable e) {
+			throw unchecked(e);
+		}
+	}
+
+	/**
+	 * @param target the object holding the field, ignored for a static field
+	 * @return the value of a double field
+	 * @throws java.lang.invoke.WrongMethodTypeException if the field is not a double
+	 */
+	public double getDouble(Object target) {
+		try {
+			return (double)getter.invokeExact(target);
+		} catch (Throwable e) {
+			throw unchecked(e);
+		}
+	}
+
+	/**
+	 * @param target the object holding the field, ignored for a static field
+	 * @param value the new value of a double field
+	 * @throws java.lang.invoke.WrongMethodTypeException if the field is not a double
+	 * @throws UnsupportedOperationException if the field is final
+	 */
+	public void setDouble(Object target, double value) {
+		settable();
+		try {
+			setter.invokeExact(target, value);
+		} catch (Throwable e) {
+			throw unchecked(e);
+		}
+	}
+
+	/**
+	 * @param target the object holding the field, ignored for a static field
+	 * @return the value of a float field
+	 * @throws java.lang.invoke.WrongMethodTypeException if the field is not a float
+	 */
+	public float getFloat(Object target) {
+		try {
+			return (float)getter.invokeExact(target);
+		} catch (Throwable e) {
+			throw unchecked(e);
+		}
+	}
+
+	/**
+	 * @param target the object holding the field, ignored for a static field
+	 * @param value the new value of a float field
+	 * @throws java.lang.invoke.WrongMethodTypeException if the field is not a float
+	 * @throws UnsupportedOperationException if the field is final
+	 */
+	public void setFloat(Object target, float value) {
+		settable();
+		try {
+			setter.invokeExact(target, value);
+		} catch (Throwable e) {
+			throw unchecked(e);
+		}
+	}
+
+	/**
+	 * @param target the object holding the field, ignored for a static field
+	 * @return the value of a boolean field
+	 * @throws java.lang.invoke.WrongMethodTypeException if the field is not a boolean
+	 */
+	public boolean getBoolean(Object target) {
+		try {
+			return (boolean)getter.invokeExact(target);
+		} catch (Throwable e) {
+			throw unchecked(e);
+		}
+	}
+
+	/**
+	 * @param target the object holding the field, ignored for a static field
+	 * @param value the new value of a boolean field
+	 * @throws java.lang.invoke.WrongMethodTypeException if the field is not a boolean
+	 * @throws UnsupportedOperationException if the field is final
+	 */
+	public void setBoolean(Object target, boolean value) {
+		settable();
+		try {
+			setter.invokeExact(target, value);
+		} catch (Throwable e) {
+			throw unchecked(e);
+		}
+	}
+
+	/**
+	 * @param target the object holding the field, ignored for a static field
+	 * @return the value of a short field
+	 * @throws java.lang.invoke.WrongMethodTypeException if the field is not a short
+	 */
+	public short getShort(Object target) {
+		try {
+			return (short)getter.invokeExact(target);
+		} catch (Throwable e) {
+			throw unchecked(e);
+		}
+	}
+
+	/**
+	 * @param target the object holding the field, ignored for a static field
+	 * @param value the new value of a short field
+	 * @throws java.lang.invoke.WrongMethodTypeException if the field is not a short
+	 * @throws UnsupportedOperationException if the field is final
+	 */
+	public void setShort(Object target, short value) {
+		settable();
+		try {
+			setter.invokeExact(target, value);
+		} catch (Throwable e) {
+			throw unchecked(e);
+		}
+	}
+
+	/**
+	 * @param target the object holding the field, ignored for a static field
+	 * @return the value of a byte field
+	 * @throws java.lang.invoke.WrongMethodTypeException if the field is not a byte
+	 */
+	public byte getByte(Object target) {
+		try {
+			return (byte)getter.invokeExact(target);
+		} catch (Throwable e) {
+			throw unchecked(e);
+		}
+	}
+
+	/**
+	 * @param target the object holding the field, ignored for a static field
+	 * @param value the new value of a byte field
+	 * @throws java.lang.invoke.WrongMethodTypeException if the field is not a byte
+	 * @throws UnsupportedOperationException if the field is final
+	 */
+	public void setByte(Object target, byte value) {
+		settable();
+		try {
+			setter.invokeExact(target, value);
+		} catch (Throwable e) {
+			throw unchecked(e);
+		}
+	}
+
+	/**
+	 * @param target the object holding the field, ignored for a static field
+	 * @return the value of a char field
+	 * @throws java.lang.invoke.WrongMethodTypeException if the field is not a char
+	 */
+	public char getChar(Object target) {
+		try {
+			return (char)getter.invokeExact(target);
+		} catch (Throwable e) {
+			throw unchecked(e);
+		}
+	}
+
+	/**
+	 * @param target the object holding the field, ignored for a static field
+	 * @param value the new value of a char field
+	 * @throws java.lang.invoke.WrongMethodTypeException if the field is not a char
+	 * @throws UnsupportedOperationException if the field is final
+	 */
+	public void setChar(Object target, char value) {
+		settable();
+		try {
+			setter.invokeExact(target, value);
+		} catch (Throwable e) {
+			throw unchecked(e);
+		}
+	}
+
+	/**
+	 * @return a handle of type (Object target, Object source)void which copies the field from source to target
+	 */
+	/* package */ MethodHandle copier() {
+		settable();
+		return MethodHandles.filterArguments(setter, 1, getter);
+	}
+
+	/**
+	 * The handles only throw what the field access itself throws, such as NullPointerException or ClassCastException for a wrong target
+	 */
+	/* package */ static RuntimeException unchecked(Throwable e) {
+		if (e instanceof Error) {
+			throw (Error)e;
+		}
+		return e instanceof RuntimeException ? (RuntimeException)e : new IllegalStateException(e);
+	}
+
+	private void settable() {
+		if (setter == null) {
+			throw new UnsupportedOperationException(field.getName() + " is final, see DeclaredFields.setAccessible");
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package org.ttang.fluent.reflection;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Copies a set of instance fields from one object to another, through a pre-built handle per field
+ * which moves the value from getter to setter without boxing it.
+ * It would usually be created by DeclaredFields and kept, static fields are left out.
+ * <p>
+ * Sample Usage:
+ *		FieldCopier copier =
+ *		DeclaredFields
+ *		.from(Order.class)
+ *		.annotatedWith(Persistent.class)
+ *		.setAccessible(true)
+ *		.copier();
+ *		copier.copy(loaded, order);
+ * @author ttang
+ *
+ */
+public class FieldCopier {
+	private final List<Field> fields;
+	private final MethodHandle[] copiers; // (Object target, Object source)void
+
+	private FieldCopier(List<Field> fields, MethodHandle[] copiers) {
+		this.fields = fields;
+		this.copiers = copiers;
+	}
+
+	/* package */ static FieldCopier from(List<Field> fields) throws IllegalAccessException {
+		List<Field> copied = new ArrayList<Field>();
+		List<MethodHandle> copiers = new ArrayList<MethodHandle>();
+		for (Field field : fields) {
+			if (Modifier.isStatic(field.getModifiers())) {
+				continue;
+			}
+			FieldAccessor accessor = MetadataCache.of(field.getDeclaringClass()).accessor(field);
+			if (!accessor.isSettable()) {
+				throw new IllegalAccessException(field.getName() + " is final, see DeclaredFields.setAccessible");
+			}
+			copied.add(field);
+			copiers.add(accessor.copier());
+		}
+		return new FieldCopier(Collections.unmodifiableList(copied), copiers.toArray(new MethodHandle[copiers.size()]));
+	}
+
+	/**
+	 * @return the fields which are copied
+	 */
+	public List<Field> fields() {
+		return fields;
+	}
+
+	/**
+	 * Copies each field from source to target
+	 * @param source the object to copy from
+	 * @param target the object to copy to
+	 * @throws ClassCastException if source or target does not declare the fields
+	 */
+	public void copy(Object source, Object target) {
+		try {
+			for (int i = 0; i < copiers.length; i++) {
+				copiers[i].invokeExact(target, source);
+			}
+		} catch (Throwable e) {
+			throw FieldAccessor.unchecked(e);
+		}
+	}
+}
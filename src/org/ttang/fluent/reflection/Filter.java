@@ -0,0 +1,10 @@
+package org.ttang.fluent.reflection;
+
+/**
+ * A condition on a single item, used to build up the filter chain of a Selection
+ * @author ttang
+ *
+ */
+/* package */ interface Filter<T> {
+	boolean matches(T item);
+}
@@ -0,0 +1,259 @@
+package org.ttang.fluent.reflection;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * The filters behind the fluent narrowing methods, such as DeclaredMethods.annotatedWith
+ * @author ttang
+ *
+ */
+/* package */ class Filters {
+	private Filters() {
+	}
+
+	/* package */ static Filter<Method> annotatedWith(Class<? extends Annotation> annotationClass) {
+		return annotatedWithAny(null, annotationClass);
+	}
+
+	@SafeVarargs
+	/* package */ static Filter<Method> annotatedWithAny(final ClassMetadata hierarchy, Class<? extends Annotation>... types) {
+		final long[] mask = AnnotationBits.mask(types);
+		return new Filter<Method>() {
+			@Override
+			public boolean matches(Method method) {
+				return AnnotationBits.any(annotationBits(method, hierarchy), mask);
+			}
+		};
+	}
+
+	@SafeVarargs
+	/* package */ static Filter<Method> annotatedWithAll(final ClassMetadata hierarchy, Class<? extends Annotation>... types) {
+		final long[] mask = AnnotationBits.mask(types);
+		return new Filter<Method>() {
+			@Override
+			public boolean matches(Method method) {
+				return AnnotationBits.all(annotationBits(method, hierarchy), mask);
+			}
+		};
+	}
+
+	/* package */ static Filter<Method> metaAnnotatedWith(final Class<? extends Annotation> annotationClass, final ClassMetadata hierarchy) {
+		return new Filter<Method>() {
+			@Override
+			public boolean matches(Method method) {
+				return MetaAnnotations.anyIsA(hierarchy != null ? hierarchy.hierarchyAnnotations(method) : MetadataCache.of(method.getDeclaringClass()).annotations(method), annotationClass);
+			}
+		};
+	}
+
+	/* package */ static Filter<Method> methodsNamed(String... names) {
+		final Set<String> wanted = ArrayUtils.asSet(names);
+		return new Filter<Method>() {
+			@Override
+			public boolean matches(Method method) {
+				return wanted.contains(method.getName());
+			}
+		};
+	}
+
+	/* package */ static Filter<Method> withReturnType(final Class<?> returnType) {
+		return new Filter<Method>() {
+			@Override
+			public boolean matches(Method method) {
+				return method.getReturnType().equals(returnType);
+			}
+		};
+	}
+
+	/* package */ static Filter<Method> withParameterTypes(final Class<?>... parameterTypes) {
+		return new Filter<Method>() {
+			@Override
+			public boolean matches(Method method) {
+				return Arrays.equals(method.getParameterTypes(), parameterTypes);
+			}
+		};
+	}
+
+	/* package */ static Filter<Constructor<?>> constructorsAnnotatedWith(final Class<? extends Annotation> annotationClass) {
+		return new Filter<Constructor<?>>() {
+			@Override
+			public boolean matches(Constructor<?> constructor) {
+				return constructor.isAnnotationPresent(annotationClass);
+			}
+		};
+	}
+
+	/* package */ static Filter<Constructor<?>> constructorsWithParameterTypes(final Class<?>... parameterTypes) {
+		return new Filter<Constructor<?>>() {
+			@Override
+			public boolean matches(Constructor<?> constructor) {
+				return Arrays.equals(constructor.getParameterTypes(), parameterTypes);
+			}
+		};
+	}
+
+	/* package */ static Filter<Field> fieldsAnnotatedWith(final Class<? extends Annotation> annotationClass) {
+		return new Filter<Field>() {
+			@Override
+			public boolean matches(Field field) {
+				return field.isAnnotationPresent(annotationClass);
+			}
+		};
+	}
+
+	/* package */ static Filter<Field> fieldsNamed(String... names) {
+		final Set<String> wanted = ArrayUtils.asSet(names);
+		return new Filter<Field>() {
+			@Override
+			public boolean matches(Field field) {
+				return wanted.contains(field.getName());
+			}
+		};
+	}
+
+	/* package */ static Filter<Field> ofType(final Class<?> type) {
+		return new Filter<Field>() {
+			@Override
+			public boolean matches(Field field) {
+				return field.getType().equals(type);
+			}
+		};
+	}
+
+	@SafeVarargs
+	/* package */ static Filter<Class<?>> classesAnnotatedWithAny(Class<? extends Annotation>... types) {
+		final long[] mask = AnnotationBits.mask(types);
+		return new Filter<Class<?>>() {
+			@Override
+			public boolean matches(Class<?> type) {
+				return AnnotationBits.any(MetadataCache.of(type).declaredAnnotationBits(), mask);
+			}
+		};
+	}
+
+	@SafeVarargs
+	/* package */ static Filter<Class<?>> classesAnnotatedWithAll(Class<? extends Annotation>... types) {
+		final long[] mask = AnnotationBits.mask(types);
+		return new Filter<Class<?>>() {
+			@Override
+			public boolean matches(Class<?> type) {
+				return AnnotationBits.all(MetadataCache.of(type).declaredAnnotationBits(), mask);
+			}
+		};
+	}
+
+	/* package */ static Filter<Class<?>> classesNamed(final String name) {
+		return new Filter<Class<?>>() {
+			@Override
+			public boolean matches(Class<?> type) {
+				return type.getSimpleName().equals(name);
+			}
+		};
+	}
+
+	/* package */ static Filter<Annotation> annotationsNamed(String... names) {
+		final Set<String> wanted = ArrayUtils.asSet(names);
+		return new Filter<Annotation>() {
+			@Override
+			public boolean matches(Annotation annotation) {
+				return wanted.contains(annotation.annotationType().getSimpleName());
+			}
+		};
+	}
+
+	@SafeVarargs
+	/* package */ static Filter<Annotation> annotationsMetaMatching(final Class<? extends Annotation>... types) {
+		return new Filter<Annotation>() {
+			@Override
+			public boolean matches(Annotation annotation) {
+				for (Class<? extends Annotation> type : types) {
+					if (MetaAnnotations.isA(annotation, type)) {
+						return true;
+					}
+				}
+				return false;
+			}
+		};
+	}
+
+	@SafeVarargs
+	/* package */ static Filter<Annotation> annotationsMatching(Class<? extends Annotation>... types) {
+		final long[] mask = AnnotationBits.mask(types);
+		return new Filter<Annotation>() {
+			@Override
+			public boolean matches(Annotation annotation) {
+				return AnnotationBits.contains(mask, AnnotationBits.id(annotation.annotationType()));
+			}
+		};
+	}
+
+	/* package */ static Filter<ClassFile> classFilesNamed(String... names) {
+		final Set<String> wanted = ArrayUtils.asSet(names);
+		return new Filter<ClassFile>() {
+			@Override
+			public boolean matches(ClassFile classFile) {
+				return wanted.contains(classFile.simpleName());
+			}
+		};
+	}
+
+	/* package */ static Filter<ClassFile> classFilesAnnotatedWith(final String annotationName) {
+		return new Filter<ClassFile>() {
+			@Override
+			public boolean matches(ClassFile classFile) {
+				return classFile.annotations().matching(annotationName).iterator().hasNext();
+			}
+		};
+	}
+
+	/* package */ static Filter<ClassFileMethod> classFileMethodsNamed(String... names) {
+		final Set<String> wanted = ArrayUtils.asSet(names);
+		return new Filter<ClassFileMethod>() {
+			@Override
+			public boolean matches(ClassFileMethod method) {
+				return wanted.contains(method.name());
+			}
+		};
+	}
+
+	/* package */ static Filter<ClassFileMethod> classFileMethodsAnnotatedWith(final String annotationName) {
+		return new Filter<ClassFileMethod>() {
+			@Override
+			public boolean matches(ClassFileMethod method) {
+				return method.annotations().matching(annotationName).iterator().hasNext();
+			}
+		};
+	}
+
+	/* package */ static Filter<ClassFileAnnotation> classFileAnnotationsNamed(String... names) {
+		final Set<String> wanted = ArrayUtils.asSet(names);
+		return new Filter<ClassFileAnnotation>() {
+			@Override
+			public boolean matches(ClassFileAnnotation annotation) {
+				return wanted.contains(annotation.simpleName());
+			}
+		};
+	}
+
+	/* package */ static Filter<ClassFileAnnotation> classFileAnnotationsMatching(String... typeNames) {
+		final Set<String> wanted = ArrayUtils.asSet(typeNames);
+		return new Filter<ClassFileAnnotation>() {
+			@Override
+			public boolean matches(ClassFileAnnotation annotation) {
+				return wanted.contains(annotation.typeName());
+			}
+		};
+	}
+
+	/**
+	 * @param hierarchy the class whose hierarchy the method was selected from, as an inherited method can override methods of interfaces it never saw, or null
+	 */
+	private static long[] annotationBits(Method method, ClassMetadata hierarchy) {
+		return hierarchy != null ? hierarchy.hierarchyAnnotationBits(method) : MetadataCache.of(method.getDeclaringClass()).annotationBits(method);
+	}
+}
@@ -0,0 +1,115 @@
+package org.ttang.fluent.reflection;
+
+import java.util.ArrayDeque;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Reports operations and exceptions as JFR events, it is always installed when instrumentation is switched on.
+ * The events cost a check of a flag unless a flight recording is running with them enabled.
+ * Scanned elements and cache lookups are too frequent to record one by one and are left to the other sinks.
+ * An operation event is begun by Instrumentation.start and committed by Instrumentation.timed, so it carries the real start time and duration.
+ * @author ttang
+ *
+ */
+/* package */ final class FlightRecorderSink implements MetricsSink {
+
+	@Name("org.ttang.fluent.reflection.Operation")
+	@Label("Reflection Operation")
+	@Category("Fluent Reflection")
+	@Description("An entry point or terminal of the fluent reflection library")
+	@StackTrace(false)
+	/* package */ static final class OperationEvent extends Event {
+		@Label("Operation")
+		String operation;
+	}
+
+	/**
+	 * An operation event begun on a thread, with the start time Instrumentation handed out for it
+	 */
+	private static final class Begun {
+		private final long start;
+		private final OperationEvent event;
+
+		private Begun(long start, OperationEvent event) {
+			this.start = start;
+			this.event = event;
+		}
+	}
+
+	private static final ThreadLocal<ArrayDeque<Begun>> begun = new ThreadLocal<ArrayDeque<Begun>>() {
+		@Override
+		protected ArrayDeque<Begun> initialValue() {
+			return new ArrayDeque<Begun>();
+		}
+	};
+
+	@Name("org.ttang.fluent.reflection.Exception")
+	@Label("Reflection Exception")
+	@Category("Fluent Reflection")
+	@Description("An exception thrown by the fluent reflection library")
+	/* package */ static final class ExceptionEvent extends Event {
+		@Label("Exception")
+		String exception;
+	}
+
+	/**
+	 * Begins an operation event, if a recording wants them
+	 * @param start the start time returned by Instrumentation.start
+	 */
+	/* package */ static void begin(long start) {
+		OperationEvent event = new OperationEvent();
+		if (event.isEnabled()) {
+			event.begin();
+			begun.get().push(new Begun(start, event));
+		}
+	}
+
+	/**
+	 * Ends and commits the event begun with start. Operations nest, so it is the latest one begun on the thread,
+	 * unless a later operation threw before it was timed, whose event is dropped.
+	 * @param operation the class and method name, such as "DeclaredMethods.from"
+	 * @param start the start time returned by Instrumentation.start
+	 */
+	/* package */ static void end(String operation, long start) {
+		ArrayDeque<Begun> events = begun.get();
+		while (!events.isEmpty() && events.peek().start >= start) {
+			Begun latest = events.pop();
+			if (latest.start == start) {
+				latest.event.end();
+				if (latest.event.shouldCommit()) {
+					latest.event.operation = operation;
+					latest.event.commit();
+				}
+				return;
+			}
+		}
+	}
+
+	@Override
+	public void timed(String operation, long nanos) {
+		// recorded through begin and end, which see the start of the operation
+	}
+
+	@Override
+	public void scanned(String filter, long elements) {
+	}
+
+	@Override
+	public void thrown(String exception) {
+		ExceptionEvent event = new ExceptionEvent();
+		if (event.isEnabled()) {
+			event.exception = exception;
+			event.commit();
+		}
+	}
+
+	@Override
+	public void cached(boolean hit) {
+	}
+}
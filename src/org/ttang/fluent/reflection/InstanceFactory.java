@@ -0,0 +1,160 @@
+package org.ttang.fluent.reflection;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * A pre-built factory for a single Constructor, backed by a MethodHandle rather than Constructor.newInstance.
+ * It would usually be created by DeclaredConstructors, and should be kept (ideally in a static final field)
+ * so the JIT can treat the handle as a constant and instantiation costs little more than new.
+ * The factory of each constructor is built once and shared.
+ * <p>
+ * Sample Usage:
+ *		InstanceFactory<Order> factory =
+ *		DeclaredConstructors
+ *		.from(Order.class)
+ *		.withParameterTypes(String.class, int.class)
+ *		.factory();
+ *		Order order = factory.newInstance("ABC", 3);
+ *
+ *		Supplier<Order> orders = DeclaredConstructors.from(Order.class).withParameterTypes().factory().supplier();
+ * @author ttang
+ *
+ */
+public class InstanceFactory<T> {
+	private static final Object[] NO_ARGUMENTS = new Object[0];
+
+	private final Constructor<T> constructor;
+	private final MethodHandle handle;
+	private final MethodHandle noArguments; // ()Object, or null unless the constructor takes no arguments
+	private final MethodHandle spreader;
+	private volatile Supplier<T> supplier;
+
+	private InstanceFactory(Constructor<T> constructor, MethodHandle handle) {
+		this.constructor = constructor;
+		this.handle = handle;
+		int parameterCount = handle.type().parameterCount();
+		this.noArguments = parameterCount == 0 ? handle.asType(MethodType.methodType(Object.class)) : null;
+		this.spreader = handle.asType(handle.type().generic()).asSpreader(Object[].class, parameterCount);
+	}
+
+	/* package */ static <T> List<InstanceFactory<T>> from(List<Constructor<T>> constructors) throws IllegalAccessException {
+		List<InstanceFactory<T>> factories = new ArrayList<InstanceFactory<T>>();
+		for (Constructor<T> constructor : constructors) {
+			factories.add(MetadataCache.of(constructor.getDeclaringClass()).factory(constructor));
+		}
+		return factories;
+	}
+
+	/* package */ static <T> InstanceFactory<T> from(Constructor<T> constructor) throws IllegalAccessException {
+		return new InstanceFactory<T>(constructor, MethodHandles.lookup().unreflectConstructor(constructor));
+	}
+
+	/**
+	 * @return the Java Constructor being invoked
+	 */
+	public Constructor<T> constructor() {
+		return constructor;
+	}
+
+	/**
+	 * The exactly typed handle, for callers which know the constructor signature and want to use invokeExact without boxing
+	 * @return the MethodHandle for the constructor
+	 */
+	public MethodHandle handle() {
+		return handle;
+	}
+
+	/**
+	 * Creates an instance through a constructor which takes no arguments, without allocating an argument array.
+	 * Unchecked exceptions thrown by the constructor are rethrown as they are, checked ones are wrapped in an IllegalStateException.
+	 * @return the new instance
+	 * @throws IllegalArgumentException if the constructor takes arguments
+	 */
+	public T newInstance() {
+		if (noArguments == null) {
+			return newInstance(NO_ARGUMENTS);
+		}
+		try {
+			return constructor.getDeclaringClass().cast(noArguments.invokeExact());
+		} catch (Throwable e) {
+			throw FieldAccessor.unchecked(e);
+		}
+	}
+
+	/**
+	 * Creates an instance.
+	 * Unchecked exceptions thrown by the constructor are rethrown as they are, checked ones are wrapped in an IllegalStateException.
+	 * @param arguments the arguments to the constructor
+	 * @return the new instance
+	 * @throws IllegalArgumentException if the number of arguments is wrong
+	 * @throws ClassCastException if an argument is of the wrong type
+	 */
+	public T newInstance(Object... arguments) {
+		try {
+			return constructor.getDeclaringClass().cast(spreader.invokeExact(arguments));
+		} catch (Throwable e) {
+			throw FieldAccessor.unchecked(e);
+		}
+	}
+
+	/**
+	 * A Supplier calling a constructor which takes no arguments, built once and shared.
+	 * It is spun by LambdaMetafactory, so get() costs the same as new, unless the class is not open to the library
+	 * or the constructor declares checked exceptions, in which case the Supplier calls newInstance().
+	 * <p>
+	 * Sample Usage: Supplier&lt;Order&gt; orders = DeclaredConstructors.from(Order.class).withParameterTypes().factory().supplier();
+	 * @return the Supplier
+	 * @throws IllegalArgumentException if the constructor takes arguments
+	 */
+	public Supplier<T> supplier() {
+		Supplier<T> result = supplier;
+		if (result == null) {
+			if (noArguments == null) {
+				throw new IllegalArgumentException(constructor + " takes arguments");
+			}
+			result = lambda();
+			if (result == null) {
+				result = new Supplier<T>() {
+					@Override
+					public T get() {
+						return newInstance();
+					}
+				};
+			}
+			supplier = result;
+		}
+		return result;
+	}
+
+	/**
+	 * @return a Supplier spun by LambdaMetafactory in the nest of the class, or null if that is not possible
+	 */
+	@SuppressWarnings("unchecked")
+	private Supplier<T> lambda() {
+		for (Class<?> exception : constructor.getExceptionTypes()) {
+			if (!RuntimeException.class.isAssignableFrom(exception) && !Error.class.isAssignableFrom(exception)) {
+				return null; // get() could not declare it, so leave it to newInstance() to wrap
+			}
+		}
+		Class<T> type = constructor.getDeclaringClass();
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+			CallSite site = LambdaMetafactory.metafactory(lookup, "get", MethodType.methodType(Supplier.class),
+					MethodType.methodType(Object.class), lookup.unreflectConstructor(constructor), MethodType.methodType(type));
+			return (Supplier<T>)site.getTarget().invoke();
+		} catch (IllegalAccessException | LambdaConversionException e) {
+			return null; // the package is not open to the library, or is in another module
+		} catch (Throwable e) {
+			throw FieldAccessor.unchecked(e);
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package org.ttang.fluent.reflection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Optional measurement of the time spent in the library, the elements scanned by its filters,
+ * the exceptions it throws and the efficiency of the MetadataCache.
+ * <p>
+ * Instrumentation is switched on for the life of the JVM by starting it with -Dorg.ttang.fluent.reflection.instrumentation=true.
+ * The switch is a constant, so when it is off the JIT removes the measuring code and it costs nothing.
+ * When it is on, measurements are reported to the installed MetricsSinks and, while a flight recording is running,
+ * as JFR events named org.ttang.fluent.reflection.Operation and org.ttang.fluent.reflection.Exception.
+ * <p>
+ * Sample Usage:
+ *		ReflectionMetrics metrics = new ReflectionMetrics();
+ *		Instrumentation.install(metrics);
+ *		long calls = metrics.callCount("DeclaredMethods.from");
+ * @author ttang
+ *
+ */
+public final class Instrumentation {
+	/* package */ static final boolean ENABLED = Boolean.getBoolean("org.ttang.fluent.reflection.instrumentation");
+
+	private static final ClassValue<String> filterNames = new ClassValue<String>() {
+		@Override
+		protected String computeValue(Class<?> type) {
+			// filters are anonymous classes of the Filters method which builds them
+			return type.getEnclosingMethod() != null ? type.getEnclosingMethod().getName() : type.getName();
+		}
+	};
+
+	private static volatile MetricsSink[] sinks = ENABLED ? loadSinks() : new MetricsSink[0];
+
+	private Instrumentation() {
+	}
+
+	/**
+	 * @return true if the JVM was started with instrumentation switched on
+	 */
+	public static boolean isEnabled() {
+		return ENABLED;
+	}
+
+	/**
+	 * Adds a sink, which receives nothing unless instrumentation is switched on
+	 * @param sink the sink to add
+	 */
+	public static synchronized void install(MetricsSink sink) {
+		MetricsSink[] installed = Arrays.copyOf(sinks, sinks.length + 1);
+		installed[sinks.length] = sink;
+		sinks = installed;
+	}
+
+	/**
+	 * Removes a sink added by install, or loaded as a service
+	 * @param sink the sink to remove
+	 */
+	public static synchronized void uninstall(MetricsSink sink) {
+		List<MetricsSink> installed = new ArrayList<MetricsSink>(Arrays.asList(sinks));
+		installed.remove(sink);
+		sinks = installed.toArray(new MetricsSink[installed.size()]);
+	}
+
+	/**
+	 * @return the start time of an operation, to pass to timed
+	 */
+	/* package */ static long start() {
+		if (!ENABLED) {
+			return 0L;
+		}
+		long start = System.nanoTime();
+		FlightRecorderSink.begin(start);
+		return start;
+	}
+
+	/* package */ static void timed(String operation, long start) {
+		if (ENABLED) {
+			long nanos = System.nanoTime() - start;
+			FlightRecorderSink.end(operation, start);
+			for (MetricsSink sink : sinks) {
+				sink.timed(operation, nanos);
+			}
+		}
+	}
+
+	/**
+	 * @return filter itself, or when instrumentation is on a filter which also reports each element it tests
+	 */
+	/* package */ static <T> Filter<T> scanning(final Filter<T> filter) {
+		if (!ENABLED) {
+			return filter;
+		}
+
+		final String name = filterNames.get(filter.getClass());
+		return new Filter<T>() {
+			@Override
+			public boolean matches(T item) {
+				for (MetricsSink sink : sinks) {
+					sink.scanned(name, 1);
+				}
+				return filter.matches(item);
+			}
+		};
+	}
+
+	/* package */ static void thrown(String exception) {
+		if (ENABLED) {
+			for (MetricsSink sink : sinks) {
+				sink.thrown(exception);
+			}
+		}
+	}
+
+	/* package */ static void cached(boolean hit) {
+		if (ENABLED) {
+			for (MetricsSink sink : sinks) {
+				sink.cached(hit);
+			}
+		}
+	}
+
+	private static MetricsSink[] loadSinks() {
+		List<MetricsSink> loaded = new ArrayList<MetricsSink>();
+		loaded.add(new FlightRecorderSink());
+		for (MetricsSink sink : ServiceLoader.load(MetricsSink.class)) {
+			loaded.add(sink);
+		}
+		return loaded.toArray(new MetricsSink[loaded.size()]);
+	}
+}
@@ -0,0 +1,227 @@
+package org.ttang.fluent.reflection;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * A jar read through a memory mapped file rather than JarFile streams.
+ * The central directory is parsed straight from the mapping, stored entries are handed out as slices of it without copying
+ * and deflated entries are inflated into buffers which each thread reuses, so scanning many jars creates little garbage.
+ * Zip64 jars, and jars too large to map in one piece, are rejected with a ZipException so the caller can fall back to JarFile.
+ * @author ttang
+ *
+ */
+/* package */ class MappedJar {
+	private static final int LOCAL_SIGNATURE = 0x04034b50;
+	private static final int CENTRAL_SIGNATURE = 0x02014b50;
+	private static final int END_SIGNATURE = 0x06054b50;
+	private static final int LOCAL_HEADER_SIZE = 30;
+	private static final int CENTRAL_HEADER_SIZE = 46;
+	private static final int END_SIZE = 22;
+	private static final int STORED = 0;
+	private static final int DEFLATED = 8;
+
+	private static final ThreadLocal<Inflating> inflating = new ThreadLocal<Inflating>() {
+		@Override
+		protected Inflating initialValue() {
+			return new Inflating();
+		}
+	};
+
+	private final File file;
+	private final ByteBuffer buffer;
+	private final List<Entry> entries;
+
+	private MappedJar(File file, ByteBuffer buffer) throws ZipException {
+		this.file = file;
+		this.buffer = buffer;
+		this.entries = Collections.unmodifiableList(readCentralDirectory());
+	}
+
+	/**
+	 * Maps a jar and reads its central directory
+	 * @param file the jar
+	 * @return the mapped jar
+	 * @throws IOException if the jar cannot be read or mapped, or is not a zip this class understands
+	 */
+	/* package */ static MappedJar open(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new ZipException(file + " is too large to map");
+			}
+			return new MappedJar(file, channel.map(MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN));
+		}
+	}
+
+	/**
+	 * @return the entries of the central directory, in the order they are listed
+	 */
+	/* package */ List<Entry> entries() {
+		return entries;
+	}
+
+	/**
+	 * Reads the bytes of an entry. A stored entry is a slice of the mapping, a deflated entry
+	 * is inflated into a buffer owned by the calling thread, which the next read on the same thread reuses.
+	 * @param entry one of entries()
+	 * @return the uncompressed bytes, from position zero
+	 * @throws IOException if the entry is corrupt or uses an unsupported compression method
+	 */
+	/* package */ ByteBuffer read(Entry entry) throws IOException {
+		int offset = entry.localOffset;
+		if (offset < 0 || offset > buffer.capacity() - LOCAL_HEADER_SIZE || buffer.getInt(offset) != LOCAL_SIGNATURE) {
+			throw new ZipException("Bad local header for " + entry.name + " in " + file);
+		}
+		int data = offset + LOCAL_HEADER_SIZE + u16(offset + 26) + u16(offset + 28);
+		ByteBuffer compressed = slice(data, entry.compressedSize);
+
+		switch (entry.method) {
+		case STORED:
+			return compressed;
+		case DEFLATED:
+			return inflating.get().inflate(compressed, entry.size, entry.name);
+		default:
+			throw new ZipException("Unsupported compression method " + entry.method + " for " + entry.name + " in " + file);
+		}
+	}
+
+	private List<Entry> readCentralDirectory() throws ZipException {
+		int end = findEnd();
+		int count = u16(end + 10);
+		int position = buffer.getInt(end + 16);
+		if (count == 0xFFFF || position == -1) {
+			throw new ZipException(file + " is a zip64 file");
+		}
+
+		List<Entry> result = new ArrayList<Entry>(count);
+		byte[] name = new byte[256];
+		for (int i = 0; i < count; i++) {
+			if (position < 0 || position > buffer.capacity() - CENTRAL_HEADER_SIZE || buffer.getInt(position) != CENTRAL_SIGNATURE) {
+				throw new ZipException("Bad central directory in " + file);
+			}
+			int nameLength = u16(position + 28);
+			int compressedSize = buffer.getInt(position + 20);
+			int size = buffer.getInt(position + 24);
+			if (compressedSize < 0 || size < 0) {
+				throw new ZipException(file + " has zip64 entries");
+			}
+			if (name.length < nameLength) {
+				name = new byte[nameLength];
+			}
+			ByteBuffer names = buffer.duplicate();
+			names.position(position + CENTRAL_HEADER_SIZE);
+			names.get(name, 0, nameLength);
+
+			result.add(new Entry(new String(name, 0, nameLength, StandardCharsets.UTF_8),
+					u16(position + 10), compressedSize, size, buffer.getInt(position + 42)));
+			position += CENTRAL_HEADER_SIZE + nameLength + u16(position + 30) + u16(position + 32);
+		}
+		return result;
+	}
+
+	/**
+	 * The end of central directory record is the last thing in the file, followed only by a comment of up to 64K
+	 */
+	private int findEnd() throws ZipException {
+		int last = buffer.capacity() - END_SIZE;
+		for (int position = last; position >= 0 && position >= last - 0xFFFF; position--) {
+			if (buffer.getInt(position) == END_SIGNATURE) {
+				return position;
+			}
+		}
+		throw new ZipException(file + " is not a zip file");
+	}
+
+	private ByteBuffer slice(int from, int length) throws ZipException {
+		if (from < 0 || from > buffer.capacity() - length) {
+			throw new ZipException("Entry data outside of " + file);
+		}
+		ByteBuffer slice = buffer.duplicate();
+		slice.limit(from + length);
+		slice.position(from);
+		return slice.slice();
+	}
+
+	private int u16(int position) {
+		return buffer.getShort(position) & 0xFFFF;
+	}
+
+	/**
+	 * An entry of the central directory
+	 * @author ttang
+	 *
+	 */
+	/* package */ static final class Entry {
+		private final String name;
+		private final int method;
+		private final int compressedSize;
+		private final int size;
+		private final int localOffset;
+
+		private Entry(String name, int method, int compressedSize, int size, int localOffset) {
+			this.name = name;
+			this.method = method;
+			this.compressedSize = compressedSize;
+			this.size = size;
+			this.localOffset = localOffset;
+		}
+
+		/* package */ String name() {
+			return name;
+		}
+	}
+
+	/**
+	 * The Inflater and buffer a thread reuses for every deflated entry it reads.
+	 * The Inflater reads the compressed bytes straight from the mapping.
+	 */
+	private static class Inflating {
+		private static final byte[] DUMMY = new byte[1]; // raw inflation may want a trailing dummy byte
+
+		private final Inflater inflater = new Inflater(true);
+		private byte[] output = new byte[16384];
+
+		private ByteBuffer inflate(ByteBuffer compressed, int size, String name) throws ZipException {
+			if (output.length < size) {
+				output = new byte[Math.max(size, output.length * 2)];
+			}
+
+			inflater.setInput(compressed);
+			boolean padded = false;
+			int inflated = 0;
+			try {
+				while (inflated < size && !inflater.finished()) {
+					int count = inflater.inflate(output, inflated, size - inflated);
+					if (count == 0 && inflater.needsInput() && !padded) {
+						inflater.setInput(DUMMY);
+						padded = true;
+					} else if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+						break;
+					}
+					inflated += count;
+				}
+			} catch (DataFormatException e) {
+				throw new ZipException("Corrupt entry " + name + ": " + e.getMessage());
+			} finally {
+				inflater.reset(); // lets go of the mapping
+			}
+			if (inflated != size) {
+				throw new ZipException("Truncated entry " + name);
+			}
+			return ByteBuffer.wrap(output, 0, size);
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package org.ttang.fluent.reflection;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The transitive closure of the meta-annotations of each annotation type, so a composed annotation such as
+ * {@literal @}Endpoint, which is annotated with {@literal @}OnEvent, can be matched as an {@literal @}OnEvent.
+ * The closure of a type is worked out once, by walking its meta-annotations breadth first, and is then a set lookup.
+ * @author ttang
+ *
+ */
+/* package */ class MetaAnnotations {
+	private static final ClassValue<Set<Class<? extends Annotation>>> closures = new ClassValue<Set<Class<? extends Annotation>>>() {
+		@Override
+		@SuppressWarnings("unchecked")
+		protected Set<Class<? extends Annotation>> computeValue(Class<?> type) {
+			return closure((Class<? extends Annotation>)type);
+		}
+	};
+
+	private MetaAnnotations() {
+	}
+
+	/**
+	 * @param annotation an annotation
+	 * @param annotationClass the annotation type to look for
+	 * @return true if annotation is an annotationClass or is annotated with one, however indirectly
+	 */
+	/* package */ static boolean isA(Annotation annotation, Class<? extends Annotation> annotationClass) {
+		return closures.get(annotation.annotationType()).contains(annotationClass);
+	}
+
+	/**
+	 * @param annotations the annotations on an element
+	 * @param annotationClass the annotation type to look for
+	 * @return true if any of annotations is an annotationClass or is annotated with one, however indirectly
+	 */
+	/* package */ static boolean anyIsA(List<Annotation> annotations, Class<? extends Annotation> annotationClass) {
+		for (int i = 0; i < annotations.size(); i++) {
+			if (isA(annotations.get(i), annotationClass)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Meta-annotations are often cyclic, @Retention is itself @Retention, so each type is visited once
+	 */
+	private static Set<Class<? extends Annotation>> closure(Class<? extends Annotation> annotationType) {
+		Set<Class<? extends Annotation>> closure = new HashSet<Class<? extends Annotation>>();
+		Deque<Class<? extends Annotation>> pending = new ArrayDeque<Class<? extends Annotation>>();
+		closure.add(annotationType);
+		pending.add(annotationType);
+		while (!pending.isEmpty()) {
+			for (Annotation meta : MetadataCache.of(pending.remove()).declaredAnnotations()) {
+				if (closure.add(meta.annotationType())) {
+					pending.add(meta.annotationType());
+				}
+			}
+		}
+		return Collections.unmodifiableSet(closure);
+	}
+}
@@ -0,0 +1,72 @@
+package org.ttang.fluent.reflection;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A shared, thread safe cache of the reflective metadata of classes.
+ * <p>
+ * The fluent entry points (DeclaredMethods.from, DeclaredClasses.from, BoundAnnotations.on) read
+ * their methods, nested classes and annotations from here rather than asking the class again, which
+ * avoids the array copy made by every getDeclaredXxx() call.
+ * Entries are held in a ClassValue so they live and die with the class they describe and do not
+ * prevent a ClassLoader from being unloaded.
+ * Each entry point counts one lookup, a miss the first time a class is looked up and a hit after that,
+ * however many of the cached snapshots the query goes on to read.
+ * <p>
+ * Sample Usage: long hits = MetadataCache.hits();
+ * @author ttang
+ *
+ */
+public class MetadataCache {
+	private static final LongAdder hits = new LongAdder();
+	private static final LongAdder misses = new LongAdder();
+
+	private static final ClassValue<ClassMetadata> metadata = new ClassValue<ClassMetadata>() {
+		@Override
+		protected ClassMetadata computeValue(Class<?> type) {
+			return new ClassMetadata(type);
+		}
+	};
+
+	private MetadataCache() {
+	}
+
+	/* package */ static ClassMetadata of(Class<?> type) {
+		return metadata.get(type);
+	}
+
+	/**
+	 * The counted form of of(), for the fluent entry points
+	 * @param type the class being queried
+	 * @return the metadata of the class
+	 */
+	/* package */ static ClassMetadata lookup(Class<?> type) {
+		ClassMetadata cached = metadata.get(type);
+		boolean hit = !cached.firstLookup();
+		(hit ? hits : misses).increment();
+		Instrumentation.cached(hit);
+		return cached;
+	}
+
+	/**
+	 * Discards the cached metadata of a class, it will be read again on next use
+	 * @param type the class to evict
+	 */
+	public static void evict(Class<?> type) {
+		metadata.remove(type);
+	}
+
+	/**
+	 * @return the number of entry point lookups answered from the cache
+	 */
+	public static long hits() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return the number of entry point lookups of a class not looked up before, or since it was evicted
+	 */
+	public static long misses() {
+		return misses.sum();
+	}
+}
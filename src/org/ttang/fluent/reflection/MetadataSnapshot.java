@@ -0,0 +1,396 @@
+package org.ttang.fluent.reflection;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers the results of fluent queries in a file, so a JVM restarting with the same class path can skip the reflection work.
+ * Results are kept as class, method and type names and resolved against the loader when asked for,
+ * which costs a lookup per result rather than a pass over every method or class.
+ * <p>
+ * The file is keyed by a hash of the loader's class path, covering the path, size and modification time of every jar and class file.
+ * A file written for a different or changed class path is ignored, and replaced by the next save().
+ * An existing file is memory mapped and only the results asked for are decoded.
+ * <p>
+ * Sample usage:
+ *		MetadataSnapshot snapshot = MetadataSnapshot.open(new File("/var/cache/app.snapshot"), getClass().getClassLoader());
+ *
+ *		List<Method> handlers = snapshot.methodsAnnotatedWith(RestService.class, OnEvent.class).methods();
+ *		List<Class<?>> services = ClassPathScanner.of(loader).using(snapshot).annotatedWith(RestService.class).types();
+ *
+ *		snapshot.save();
+ * @author ttang
+ *
+ */
+public class MetadataSnapshot {
+	private static final int MAGIC = 0x464C5253;
+	private static final int VERSION = 1;
+
+	private final File file;
+	private final ClassLoader loader;
+	private final long classPathHash;
+	private final ConcurrentMap<List<File>, Long> entryHashes = new ConcurrentHashMap<List<File>, Long>(); // class paths hashed for scanners using the snapshot
+	private final ByteBuffer mapped; // the records of a valid existing file, or null
+	private final Map<String, Integer> mappedRecords = new HashMap<String, Integer>(); // key to the offset of its values in mapped
+	private final ConcurrentMap<String, List<String>> records = new ConcurrentHashMap<String, List<String>>();
+	private volatile boolean changed;
+
+	private MetadataSnapshot(File file, ClassLoader loader) {
+		this.file = file;
+		this.loader = loader != null ? loader : ClassLoader.getSystemClassLoader();
+		List<File> entries = ClassPathScanner.entries(this.loader);
+		this.classPathHash = hash(entries);
+		this.entryHashes.put(entries, classPathHash);
+		this.mapped = map();
+	}
+
+	/**
+	 * Opens a snapshot file, an unreadable, missing or stale file gives an empty snapshot
+	 * @param file where the snapshot is kept
+	 * @param loader the loader whose class path keys the snapshot, and which resolves the remembered results
+	 * @return the snapshot
+	 */
+	public static MetadataSnapshot open(File file, ClassLoader loader) {
+		return new MetadataSnapshot(file, loader);
+	}
+
+	/**
+	 * @return true if results were read from a file written for the current class path
+	 */
+	public boolean isFresh() {
+		return mapped != null;
+	}
+
+	/**
+	 * The methods declared by a class which are annotated with annotationClass
+	 * @param type the declaring class
+	 * @param annotationClass the annotation to look for
+	 * @return the annotated methods for chaining
+	 */
+	public DeclaredMethods methodsAnnotatedWith(final Class<?> type, final Class<? extends Annotation> annotationClass) {
+		return DeclaredMethods.of(resolve("methods " + type.getName() + " " + annotationClass.getName(), new Query<Method>() {
+			@Override
+			List<Method> compute() {
+				return DeclaredMethods.from(type).annotatedWith(annotationClass).methods();
+			}
+
+			@Override
+			String write(Method method) {
+				return method.getName() + " " + Descriptors.descriptor(method);
+			}
+
+			@Override
+			Method read(String value) throws ReflectiveOperationException {
+				String[] parts = value.split(" ");
+				return method(type, parts[0], parts[1]);
+			}
+		}));
+	}
+
+	/**
+	 * The class declared within enclosingClass which DeclaredClasses.named would find
+	 * @param enclosingClass the enclosing class
+	 * @param name the simple name of the declared class
+	 * @return the classes for chaining
+	 */
+	public DeclaredClasses declaredClassesNamed(final Class<?> enclosingClass, final String name) {
+		return DeclaredClasses.of(resolve("classes " + enclosingClass.getName() + " " + name, new ClassQuery() {
+			@Override
+			List<Class<?>> compute() {
+				return DeclaredClasses.from(enclosingClass).named(name).types();
+			}
+		}));
+	}
+
+	/**
+	 * The property names and types of an annotation, as DeclaredAnnotationProperties finds them.
+	 * Like DeclaredAnnotationProperties they are the public methods of the type, so include those inherited from Annotation.
+	 * @param annotationType the annotation
+	 * @return an unmodifiable map of property name to property type, in the order getMethods() gives them
+	 */
+	public Map<String, Class<?>> annotationPropertyTypes(final Class<? extends Annotation> annotationType) {
+		List<String[]> properties = resolve("properties " + annotationType.getName(), new Query<String[]>() {
+			@Override
+			List<String[]> compute() {
+				List<String[]> properties = new ArrayList<String[]>();
+				for (Method method : MetadataCache.of(annotationType).methods()) {
+					properties.add(new String[] { method.getName(), method.getReturnType().getName() });
+				}
+				return properties;
+			}
+
+			@Override
+			String write(String[] property) {
+				return property[0] + " " + property[1];
+			}
+
+			@Override
+			String[] read(String value) {
+				return value.split(" ");
+			}
+		});
+
+		Map<String, Class<?>> types = new LinkedHashMap<String, Class<?>>();
+		try {
+			for (String[] property : properties) {
+				types.put(property[0], Descriptors.load(property[1], annotationType.getClassLoader()));
+			}
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException("A property type of " + annotationType.getName() + " cannot be loaded", e);
+		}
+		return Collections.unmodifiableMap(types);
+	}
+
+	/**
+	 * Writes the snapshot, if anything was added to it, replacing the file in a single move
+	 * @throws IOException if the file cannot be written
+	 */
+	public synchronized void save() throws IOException {
+		if (!changed) {
+			return;
+		}
+		Map<String, List<String>> all = new LinkedHashMap<String, List<String>>();
+		for (String key : mappedRecords.keySet()) {
+			all.put(key, lookup(key));
+		}
+		all.putAll(records);
+
+		File parent = file.getAbsoluteFile().getParentFile();
+		File temporary = File.createTempFile(file.getName(), ".tmp", parent);
+		try {
+			try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(temporary.toPath()))) {
+				DataOutputStream out = new DataOutputStream(stream);
+				out.writeInt(MAGIC);
+				out.writeShort(VERSION);
+				out.writeLong(classPathHash);
+				out.writeInt(all.size());
+				for (Map.Entry<String, List<String>> record : all.entrySet()) {
+					writeString(record.getKey(), out);
+					out.writeInt(record.getValue().size());
+					for (String value : record.getValue()) {
+						writeString(value, out);
+					}
+				}
+				out.flush();
+			}
+			Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporary.toPath());
+		}
+		changed = false;
+	}
+
+	/**
+	 * A query whose results can be remembered as strings
+	 */
+	/* package */ abstract static class Query<T> {
+		abstract List<T> compute();
+
+		abstract String write(T item);
+
+		abstract T read(String value) throws ReflectiveOperationException;
+	}
+
+	/**
+	 * A query for classes, remembered by name
+	 */
+	private abstract class ClassQuery extends Query<Class<?>> {
+		@Override
+		String write(Class<?> type) {
+			return type.getName();
+		}
+
+		@Override
+		Class<?> read(String value) throws ClassNotFoundException {
+			return Descriptors.load(value, loader);
+		}
+	}
+
+	/**
+	 * @param key identifies the query and its parameters
+	 * @param query computes, writes and reads the results
+	 * @return the remembered results, or the computed results, which are then remembered
+	 */
+	/* package */ <T> List<T> resolve(String key, Query<T> query) {
+		List<String> values = lookup(key);
+		if (values != null) {
+			try {
+				List<T> items = new ArrayList<T>(values.size());
+				for (String value : values) {
+					items.add(query.read(value));
+				}
+				return items;
+			} catch (ReflectiveOperationException | LinkageError e) {
+				// the loader no longer agrees with the snapshot, so work the result out again
+			}
+		}
+
+		List<T> items = query.compute();
+		List<String> written = new ArrayList<String>(items.size());
+		for (T item : items) {
+			written.add(query.write(item));
+		}
+		records.put(key, Collections.unmodifiableList(written));
+		changed = true;
+		return items;
+	}
+
+	/**
+	 * Looks the method up directly rather than through the MetadataCache, so a hit does not reflect over every method of type
+	 * @param type the declaring class
+	 * @return the method declared by type with name and descriptor
+	 * @throws NoSuchMethodException if type does not declare it
+	 * @throws ClassNotFoundException if a parameter type cannot be loaded
+	 */
+	/* package */ static Method method(Class<?> type, String name, String descriptor) throws NoSuchMethodException, ClassNotFoundException {
+		List<String> parameterTypeNames = Descriptors.parameterTypeNames(descriptor);
+		Class<?>[] parameterTypes = new Class<?>[parameterTypeNames.size()];
+		for (int i = 0; i < parameterTypes.length; i++) {
+			parameterTypes[i] = Descriptors.load(parameterTypeNames.get(i), type.getClassLoader());
+		}
+		Method method = type.getDeclaredMethod(name, parameterTypes);
+		if (!Descriptors.descriptor(method).equals(descriptor)) {
+			// a bridge method with the same parameters, getDeclaredMethod prefers the most specific return type
+			method = Descriptors.method(type, name, descriptor);
+			if (method == null) {
+				throw new NoSuchMethodException(type.getName() + "." + name + descriptor);
+			}
+		}
+		return method;
+	}
+
+	/**
+	 * Each class path is hashed once per snapshot, as the snapshot's own class path is when it is opened
+	 * @param entries the class path directories and jars
+	 * @return the hash of entries
+	 */
+	/* package */ long hashOf(List<File> entries) {
+		Long hash = entryHashes.get(entries);
+		if (hash == null) {
+			hash = hash(entries);
+			entryHashes.putIfAbsent(entries, hash);
+		}
+		return hash;
+	}
+
+	/**
+	 * Hashes the path, size and modification time of each entry, and of every file below a directory entry
+	 * @param entries the class path directories and jars
+	 * @return the hash
+	 */
+	private static long hash(List<File> entries) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		for (File entry : entries) {
+			hash(entry.getAbsoluteFile(), digest);
+		}
+		return ByteBuffer.wrap(digest.digest()).getLong();
+	}
+
+	private static void hash(File file, MessageDigest digest) {
+		digest.update((file.getPath() + "\u0000" + file.length() + "\u0000" + file.lastModified() + "\n").getBytes(StandardCharsets.UTF_8));
+		File[] files = file.listFiles();
+		if (files != null) {
+			Arrays.sort(files);
+			for (File child : files) {
+				hash(child, digest);
+			}
+		}
+	}
+
+	private List<String> lookup(String key) {
+		List<String> values = records.get(key);
+		if (values == null && mapped != null) {
+			Integer offset = mappedRecords.get(key);
+			if (offset != null) {
+				values = readValues(offset);
+				records.putIfAbsent(key, values);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Maps the file and reads its keys, the values are left to be decoded when they are looked up
+	 */
+	private ByteBuffer map() {
+		if (!file.isFile()) {
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION || buffer.getLong() != classPathHash) {
+				return null;
+			}
+			int count = buffer.getInt();
+			Map<String, Integer> keys = new HashMap<String, Integer>();
+			for (int i = 0; i < count; i++) {
+				String key = readString(buffer);
+				keys.put(key, buffer.position());
+				for (int values = buffer.getInt(); values > 0; values--) {
+					int length = buffer.getInt();
+					buffer.position(buffer.position() + length);
+				}
+			}
+			mappedRecords.putAll(keys);
+			return buffer;
+		} catch (IOException | RuntimeException e) {
+			return null; // unreadable or corrupt, start again
+		}
+	}
+
+	private List<String> readValues(int offset) {
+		ByteBuffer buffer = mapped.duplicate();
+		buffer.position(offset);
+		int count = buffer.getInt();
+		List<String> values = new ArrayList<String>(count);
+		for (int i = 0; i < count; i++) {
+			values.add(readString(buffer));
+		}
+		return Collections.unmodifiableList(values);
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0 || length > buffer.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeString(String string, DataOutputStream out) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+}
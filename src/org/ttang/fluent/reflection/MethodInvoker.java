@@ -0,0 +1,88 @@
+package org.ttang.fluent.reflection;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pre-built invoker for a single Method, backed by a MethodHandle rather than Method.invoke.
+ * It would usually be created by DeclaredMethods, and should be kept (ideally in a static final field)
+ * so the JIT can treat the handle as a constant. The unbound invoker of each method is built once and shared.
+ * <p>
+ * Sample Usage:
+ *		MethodInvoker invoker =
+ *		DeclaredMethods
+ *		.from(RestService.class)
+ *		.named("onEvent")
+ *		.invoker()
+ *		.bind(restService);
+ *		invoker.invoke(event);
+ * @author ttang
+ *
+ */
+public class MethodInvoker {
+	private final Method method;
+	private final MethodHandle handle;
+	private final MethodHandle spreader;
+
+	private MethodInvoker(Method method, MethodHandle handle) {
+		this.method = method;
+		this.handle = handle;
+		this.spreader = handle.asType(handle.type().generic()).asSpreader(Object[].class, handle.type().parameterCount());
+	}
+
+	/* package */ static List<MethodInvoker> from(List<Method> methods) throws IllegalAccessException {
+		List<MethodInvoker> invokers = new ArrayList<MethodInvoker>();
+		for (Method method : methods) {
+			invokers.add(MetadataCache.of(method.getDeclaringClass()).invoker(method));
+		}
+		return invokers;
+	}
+
+	/* package */ static MethodInvoker from(Method method) throws IllegalAccessException {
+		return new MethodInvoker(method, MethodHandles.lookup().unreflect(method));
+	}
+
+	/**
+	 * @return the Java Method being invoked
+	 */
+	public Method method() {
+		return method;
+	}
+
+	/**
+	 * The exactly typed handle, for callers which know the method signature and want to use invokeExact
+	 * without boxing. An instance method takes its receiver as the first parameter unless bound.
+	 * @return the MethodHandle for the method
+	 */
+	public MethodHandle handle() {
+		return handle;
+	}
+
+	/**
+	 * Binds the receiver of an instance method, so it need not be passed on every invocation
+	 * @param target the object the method is invoked on
+	 * @return a new invoker for chaining
+	 * @throws IllegalArgumentException if the method is static
+	 */
+	public MethodInvoker bind(Object target) {
+		if (Modifier.isStatic(method.getModifiers())) {
+			throw new IllegalArgumentException(method.getName() + " is static and cannot be bound");
+		}
+		return new MethodInvoker(method, handle.bindTo(target));
+	}
+
+	/**
+	 * Invokes the method. Unbound instance methods take their receiver as the first argument.
+	 * Unlike Method.invoke, exceptions thrown by the method are not wrapped.
+	 * @param arguments the arguments to the method
+	 * @return the value returned by the method, or null for a void method
+	 * @throws Throwable anything thrown by the method
+	 */
+	public Object invoke(Object... arguments) throws Throwable {
+		return spreader.invokeExact(arguments);
+	}
+}
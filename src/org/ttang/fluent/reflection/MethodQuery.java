@@ -0,0 +1,106 @@
+package org.ttang.fluent.reflection;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A reusable, immutable and thread safe query over the methods declared within a class.
+ * The query is defined once, typically in a static final field, and remembers its result for each class it is applied to,
+ * so applying it again to the same class costs a single lookup.
+ * <p>
+ * Sample usage:
+ *		static final MethodQuery HANDLERS = MethodQuery.create().annotatedWith(OnEvent.class).withParameterTypes(Event.class);
+ *
+ *		List<Method> methods = HANDLERS.from(RestService.class).methods();
+ * @author ttang
+ *
+ */
+public final class MethodQuery {
+	private final Selection<Method> selection;
+	private final ClassValue<List<Method>> results = new ClassValue<List<Method>>() {
+		@Override
+		protected List<Method> computeValue(Class<?> type) {
+			return Collections.unmodifiableList(selection.over(MetadataCache.of(type).declaredMethods()).list());
+		}
+	};
+
+	private MethodQuery(Selection<Method> selection) {
+		this.selection = selection;
+	}
+
+	/**
+	 * @return a query selecting every declared method, for chaining
+	 */
+	public static MethodQuery create() {
+		return new MethodQuery(Selection.of(Collections.<Method>emptyList()));
+	}
+
+	/**
+	 * @param annotationClass
+	 * @return a new query which also requires methods to be annotated with annotationClass
+	 */
+	public MethodQuery annotatedWith(Class<? extends Annotation> annotationClass) {
+		return new MethodQuery(selection.where(Filters.annotatedWith(annotationClass)));
+	}
+
+	/**
+	 * @param types the annotations to look for
+	 * @return a new query which also requires methods to be annotated with at least one of the types
+	 */
+	@SafeVarargs
+	public final MethodQuery annotatedWithAny(Class<? extends Annotation>... types) {
+		return new MethodQuery(selection.where(Filters.annotatedWithAny(null, types)));
+	}
+
+	/**
+	 * @param types the annotations to look for
+	 * @return a new query which also requires methods to be annotated with every one of the types
+	 */
+	@SafeVarargs
+	public final MethodQuery annotatedWithAll(Class<? extends Annotation>... types) {
+		return new MethodQuery(selection.where(Filters.annotatedWithAll(null, types)));
+	}
+
+	/**
+	 * @param annotationClass
+	 * @return a new query which also requires methods to be annotated with annotationClass, directly or through a composed annotation
+	 */
+	public MethodQuery metaAnnotatedWith(Class<? extends Annotation> annotationClass) {
+		return new MethodQuery(selection.where(Filters.metaAnnotatedWith(annotationClass, null)));
+	}
+
+	/**
+	 * @param names array of names
+	 * @return a new query which also requires methods to have one of the names
+	 */
+	public MethodQuery named(String... names) {
+		return new MethodQuery(selection.where(Filters.methodsNamed(names)));
+	}
+
+	/**
+	 * @param returnType the return type to filter on
+	 * @return a new query which also requires methods to have a specific return type
+	 */
+	public MethodQuery withReturnType(Class<?> returnType) {
+		return new MethodQuery(selection.where(Filters.withReturnType(returnType)));
+	}
+
+	/**
+	 * @param parameterTypes the parameter types used for matching
+	 * @return a new query which also requires methods to have specific parameter types
+	 */
+	public MethodQuery withParameterTypes(Class<?>... parameterTypes) {
+		return new MethodQuery(selection.where(Filters.withParameterTypes(parameterTypes.clone())));
+	}
+
+	/**
+	 * Applies the query to a class, the result is remembered for the next time the query is applied to the same class
+	 * @param type the enclosing class
+	 * @return the selected methods for chaining
+	 */
+	public DeclaredMethods from(Class<?> type) {
+		return DeclaredMethods.of(results.get(type));
+	}
+}
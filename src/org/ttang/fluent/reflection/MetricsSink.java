@@ -0,0 +1,40 @@
+package org.ttang.fluent.reflection;
+
+/**
+ * Receives the measurements made by the library when instrumentation is switched on, see Instrumentation.
+ * Sinks are called on the thread doing the reflection, so they should be quick and thread safe.
+ * Sinks can be installed with Instrumentation.install, or listed in META-INF/services/org.ttang.fluent.reflection.MetricsSink
+ * to be loaded when instrumentation starts.
+ * <p>
+ * Sample Usage: Instrumentation.install(new ReflectionMetrics());
+ * @author ttang
+ *
+ */
+public interface MetricsSink {
+
+	/**
+	 * An entry point such as DeclaredMethods.from or a terminal such as DeclaredMethods.method has completed, or thrown
+	 * @param operation the class and method name, such as "DeclaredMethods.from"
+	 * @param nanos the time taken
+	 */
+	void timed(String operation, long nanos);
+
+	/**
+	 * A filter has been asked whether an element matches
+	 * @param filter the filter name, such as "annotatedWithAny"
+	 * @param elements the number of elements tested
+	 */
+	void scanned(String filter, long elements);
+
+	/**
+	 * An exception is about to be thrown through Throw
+	 * @param exception the simple name of the exception, such as "NoSuchMethodException"
+	 */
+	void thrown(String exception);
+
+	/**
+	 * The MetadataCache has been asked for metadata
+	 * @param hit true if it was answered from the cache, false if it had to reflect over the class
+	 */
+	void cached(boolean hit);
+}
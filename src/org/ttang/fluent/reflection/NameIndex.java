@@ -0,0 +1,112 @@
+package org.ttang.fluent.reflection;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds and reads hash indexes from a name to the positions of the items with that name in a list.
+ * Indexes are built once per class by ClassMetadata and shared by every query over that class.
+ * @author ttang
+ *
+ */
+/* package */ abstract class NameIndex<T> {
+	/* package */ static final NameIndex<Method> METHODS = new NameIndex<Method>() {
+		@Override
+		/* package */ String name(Method method) {
+			return method.getName();
+		}
+	};
+
+	/* package */ static final NameIndex<Class<?>> CLASSES = new NameIndex<Class<?>>() {
+		@Override
+		/* package */ String name(Class<?> type) {
+			return type.getSimpleName();
+		}
+	};
+
+	/* package */ static final NameIndex<Field> FIELDS = new NameIndex<Field>() {
+		@Override
+		/* package */ String name(Field field) {
+			return field.getName();
+		}
+	};
+
+	/* package */ abstract String name(T item);
+
+	/**
+	 * @param items the list to index
+	 * @return an unmodifiable map from name to the ascending positions of the items with that name
+	 */
+	/* package */ Map<String, int[]> build(List<T> items) {
+		Map<String, int[]> index = new HashMap<String, int[]>();
+		for (int i = 0; i < items.size(); i++) {
+			String name = name(items.get(i));
+			int[] positions = index.get(name);
+			if (positions == null) {
+				positions = new int[] { i };
+			} else {
+				int[] grown = new int[positions.length + 1];
+				System.arraycopy(positions, 0, grown, 0, positions.length);
+				grown[positions.length] = i;
+				positions = grown;
+			}
+			index.put(name, positions);
+		}
+		return Collections.unmodifiableMap(index);
+	}
+
+	/**
+	 * @param items the indexed list
+	 * @param index the index of items
+	 * @param names the names to look up
+	 * @return the items with any of the names, in list order
+	 */
+	/* package */ static <T> List<T> select(List<T> items, Map<String, int[]> index, String... names) {
+		if (names.length == 1) {
+			return select(items, index.get(names[0]));
+		}
+
+		int count = 0;
+		int[][] matches = new int[names.length][];
+		for (int i = 0; i < names.length; i++) {
+			matches[i] = index.get(names[i]);
+			count += matches[i] == null ? 0 : matches[i].length;
+		}
+
+		int[] positions = new int[count];
+		count = 0;
+		for (int[] match : matches) {
+			if (match != null) {
+				System.arraycopy(match, 0, positions, count, match.length);
+				count += match.length;
+			}
+		}
+		Arrays.sort(positions);
+
+		List<T> found = new ArrayList<T>(positions.length);
+		for (int i = 0; i < positions.length; i++) {
+			if (i == 0 || positions[i] != positions[i - 1]) {
+				found.add(items.get(positions[i]));
+			}
+		}
+		return found;
+	}
+
+	private static <T> List<T> select(List<T> items, int[] positions) {
+		if (positions == null) {
+			return Collections.emptyList();
+		}
+
+		List<T> found = new ArrayList<T>(positions.length);
+		for (int position : positions) {
+			found.add(items.get(position));
+		}
+		return found;
+	}
+}
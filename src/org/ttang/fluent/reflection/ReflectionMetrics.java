@@ -0,0 +1,177 @@
+package org.ttang.fluent.reflection;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A MetricsSink which keeps counts and latency histograms in memory, for reading by a monitoring endpoint or a test.
+ * Latencies are counted in power of two buckets, bucket i counts the calls which took from 2^i up to 2^(i+1) nanoseconds.
+ * <p>
+ * Sample Usage:
+ *		ReflectionMetrics metrics = new ReflectionMetrics();
+ *		Instrumentation.install(metrics);
+ *		long p99 = metrics.percentile("DeclaredMethods.method", 0.99);
+ * @author ttang
+ *
+ */
+public class ReflectionMetrics implements MetricsSink {
+	private static final int BUCKETS = 64;
+
+	private final ConcurrentMap<String, Latency> latencies = new ConcurrentHashMap<String, Latency>();
+	private final ConcurrentMap<String, LongAdder> scanned = new ConcurrentHashMap<String, LongAdder>();
+	private final ConcurrentMap<String, LongAdder> thrown = new ConcurrentHashMap<String, LongAdder>();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	private static final class Latency {
+		private final LongAdder calls = new LongAdder();
+		private final LongAdder nanos = new LongAdder();
+		private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+		private Latency() {
+			for (int i = 0; i < BUCKETS; i++) {
+				buckets[i] = new LongAdder();
+			}
+		}
+	}
+
+	@Override
+	public void timed(String operation, long nanos) {
+		Latency latency = latencies.get(operation);
+		if (latency == null) {
+			Latency created = new Latency();
+			latency = latencies.putIfAbsent(operation, created);
+			latency = latency == null ? created : latency;
+		}
+		latency.calls.increment();
+		latency.nanos.add(nanos);
+		latency.buckets[bucket(nanos)].increment();
+	}
+
+	@Override
+	public void scanned(String filter, long elements) {
+		counter(scanned, filter).add(elements);
+	}
+
+	@Override
+	public void thrown(String exception) {
+		counter(thrown, exception).increment();
+	}
+
+	@Override
+	public void cached(boolean hit) {
+		(hit ? hits : misses).increment();
+	}
+
+	/**
+	 * @return the names of the operations which have been timed
+	 */
+	public Set<String> operations() {
+		return Collections.unmodifiableSet(latencies.keySet());
+	}
+
+	/**
+	 * @param operation the operation, such as "DeclaredMethods.from"
+	 * @return the number of calls
+	 */
+	public long callCount(String operation) {
+		Latency latency = latencies.get(operation);
+		return latency == null ? 0 : latency.calls.sum();
+	}
+
+	/**
+	 * @param operation the operation, such as "DeclaredMethods.from"
+	 * @return the total time taken by the calls, in nanoseconds
+	 */
+	public long totalNanos(String operation) {
+		Latency latency = latencies.get(operation);
+		return latency == null ? 0 : latency.nanos.sum();
+	}
+
+	/**
+	 * @param operation the operation, such as "DeclaredMethods.from"
+	 * @return a copy of the latency histogram, element i counts the calls which took from 2^i up to 2^(i+1) nanoseconds
+	 */
+	public long[] histogram(String operation) {
+		long[] counts = new long[BUCKETS];
+		Latency latency = latencies.get(operation);
+		if (latency != null) {
+			for (int i = 0; i < BUCKETS; i++) {
+				counts[i] = latency.buckets[i].sum();
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * @param operation the operation, such as "DeclaredMethods.from"
+	 * @param fraction the fraction of calls, such as 0.99
+	 * @return the upper bound of the bucket holding the percentile, in nanoseconds, or 0 if there have been no calls
+	 */
+	public long percentile(String operation, double fraction) {
+		long[] counts = histogram(operation);
+		long total = 0;
+		for (long count : counts) {
+			total += count;
+		}
+
+		long wanted = (long)Math.ceil(total * fraction);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS && total > 0; i++) {
+			seen += counts[i];
+			if (seen >= wanted && counts[i] > 0) {
+				return i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @param filter the filter name, such as "annotatedWithAny"
+	 * @return the number of elements the filter has tested
+	 */
+	public long scannedCount(String filter) {
+		LongAdder count = scanned.get(filter);
+		return count == null ? 0 : count.sum();
+	}
+
+	/**
+	 * @param exception the simple name of the exception, such as "NoSuchMethodException"
+	 * @return the number of times it has been thrown through Throw
+	 */
+	public long thrownCount(String exception) {
+		LongAdder count = thrown.get(exception);
+		return count == null ? 0 : count.sum();
+	}
+
+	/**
+	 * @return the number of MetadataCache lookups answered from the cache
+	 */
+	public long cacheHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return the number of MetadataCache lookups which had to reflect over the class
+	 */
+	public long cacheMisses() {
+		return misses.sum();
+	}
+
+	private static int bucket(long nanos) {
+		return nanos <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+	}
+
+	private static LongAdder counter(ConcurrentMap<String, LongAdder> counters, String name) {
+		LongAdder count = counters.get(name);
+		if (count == null) {
+			LongAdder created = new LongAdder();
+			count = counters.putIfAbsent(name, created);
+			count = count == null ? created : count;
+		}
+		return count;
+	}
+}
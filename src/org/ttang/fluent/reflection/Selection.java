@@ -0,0 +1,242 @@
+package org.ttang.fluent.reflection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A lazily filtered view of a list. Filters are only collected as a Selection is built,
+ * the list is read in a single pass when a terminal asks for the selected items.
+ * A Selection is immutable, adding a filter returns a new Selection sharing the list and earlier filters.
+ * @author ttang
+ *
+ */
+/* package */ final class Selection<T> implements Iterable<T> {
+	private static final Filter<?>[] NO_FILTERS = new Filter<?>[0];
+
+	private final List<T> source;
+	private final Filter<? super T>[] filters;
+	private final Consumer<? super T> check; // run on each selected item, and may throw, or null
+
+	private Selection(List<T> source, Filter<? super T>[] filters, Consumer<? super T> check) {
+		this.source = source;
+		this.filters = filters;
+		this.check = check;
+	}
+
+	/* package */ static <T> Selection<T> of(List<T> source) {
+		@SuppressWarnings("unchecked") // the array is empty, so holds no filter of the wrong type
+		Filter<? super T>[] none = (Filter<? super T>[])NO_FILTERS;
+		return new Selection<T>(source, none, null);
+	}
+
+	/**
+	 * @param filter the additional condition
+	 * @return a new Selection of the items which also match filter
+	 */
+	/* package */ Selection<T> where(Filter<? super T> filter) {
+		Filter<? super T>[] chained = Arrays.copyOf(filters, filters.length + 1);
+		chained[filters.length] = Instrumentation.scanning(filter);
+		return new Selection<T>(source, chained, check);
+	}
+
+	/**
+	 * @param check run on each item as it is selected, after every filter has matched it, and may throw to refuse it
+	 * @return a new Selection which checks the items it selects
+	 */
+	/* package */ Selection<T> checking(Consumer<? super T> check) {
+		return new Selection<T>(source, filters, check);
+	}
+
+	/**
+	 * @param list a different list to select from
+	 * @return a new Selection applying the same filters to list
+	 */
+	/* package */ Selection<T> over(List<T> list) {
+		return new Selection<T>(list, filters, check);
+	}
+
+	/**
+	 * @return the list selected from, before the filters and check are applied
+	 */
+	/* package */ List<T> source() {
+		return source;
+	}
+
+	/**
+	 * @return true if any filters have been added
+	 */
+	/* package */ boolean isFiltered() {
+		return filters.length > 0;
+	}
+
+	/**
+	 * @return all of the selected items
+	 */
+	/* package */ List<T> list() {
+		return isFiltered() || check != null ? limit(Integer.MAX_VALUE) : source;
+	}
+
+	/**
+	 * Stops reading the list as soon as limit items have been selected
+	 * @param limit the maximum number of items wanted
+	 * @return the first selected items, up to limit of them
+	 */
+	/* package */ List<T> limit(int limit) {
+		List<T> selected = new ArrayList<T>(Math.min(limit, source.size()));
+		for (int i = 0; i < source.size() && selected.size() < limit; i++) {
+			T item = source.get(i);
+			if (matches(item)) {
+				selected.add(item);
+			}
+		}
+		return selected;
+	}
+
+	/**
+	 * Stops reading the list as soon as a second item is selected
+	 * @return the selected item, or null unless exactly one item is selected
+	 */
+	/* package */ T only() {
+		T only = null;
+		for (int i = 0; i < source.size(); i++) {
+			T item = source.get(i);
+			if (matches(item)) {
+				if (only != null) {
+					return null;
+				}
+				only = item;
+			}
+		}
+		return only;
+	}
+
+	/**
+	 * @return a lazily filtered, unmodifiable iterator over the selected items
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+			private int position = advance(0);
+
+			@Override
+			public boolean hasNext() {
+				return position < source.size();
+			}
+
+			@Override
+			public T next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				T item = source.get(position);
+				position = advance(position + 1);
+				return item;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Splits the list by index, so no items are copied. An unfiltered Selection is SIZED,
+	 * a filtered one only estimates its size, as the filters are applied as each half is read.
+	 * @return a lazily filtered spliterator over the selected items
+	 */
+	@Override
+	public Spliterator<T> spliterator() {
+		return new Range(0, source.size());
+	}
+
+	/**
+	 * @param parallel true for a parallel stream
+	 * @return a lazily filtered stream of the selected items
+	 */
+	/* package */ Stream<T> stream(boolean parallel) {
+		return StreamSupport.stream(spliterator(), parallel);
+	}
+
+	private int advance(int position) {
+		while (position < source.size() && !matches(source.get(position))) {
+			position++;
+		}
+		return position;
+	}
+
+	private boolean matches(T item) {
+		for (Filter<? super T> filter : filters) {
+			if (!filter.matches(item)) {
+				return false;
+			}
+		}
+		if (check != null) {
+			check.accept(item);
+		}
+		return true;
+	}
+
+	private final class Range implements Spliterator<T> {
+		private int position;
+		private final int end;
+
+		private Range(int position, int end) {
+			this.position = position;
+			this.end = end;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			while (position < end) {
+				T item = source.get(position++);
+				if (matches(item)) {
+					action.accept(item);
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super T> action) {
+			int i = position;
+			position = end;
+			for (; i < end; i++) {
+				T item = source.get(i);
+				if (matches(item)) {
+					action.accept(item);
+				}
+			}
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			int middle = (position + end) >>> 1;
+			if (middle <= position) {
+				return null;
+			}
+			Range prefix = new Range(position, middle);
+			position = middle;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return end - position;
+		}
+
+		@Override
+		public int characteristics() {
+			int characteristics = ORDERED | IMMUTABLE | NONNULL;
+			return isFiltered() ? characteristics : characteristics | SIZED | SUBSIZED;
+		}
+	}
+}
@@ -5,17 +5,44 @@ package org.ttang.fluent.reflection;
  * <p>
  * Sample Usage: Throw.If(true).NoSuchMethod("Always thrown");
  * Sample Usage: Throw.Unless(true).NoSuchMethod("Never thrown");
+ * <p>
+ * Where misses are expected as part of normal control flow, setStackTraces(false) switches the library
+ * to exceptions which do not capture a stack trace, which makes them far cheaper to throw.
  * @author ttang
  *
  */
 public class Throw {
+	private static volatile Thrower throwing = counted(ThrowingThrower.instance());
+
+	/**
+	 * Chooses whether the exceptions thrown by the library capture a stack trace, they do by default
+	 * <p>
+	 * Sample Usage: Throw.setStackTraces(false);
+	 * @param enabled false for lightweight exceptions without a stack trace
+	 */
+	public static void setStackTraces(boolean enabled) {
+		throwing = counted(enabled ? ThrowingThrower.instance() : StacklessThrower.instance());
+	}
+
+	private static Thrower counted(Thrower thrower) {
+		return Instrumentation.ENABLED ? new CountingThrower(thrower) : thrower;
+	}
+
+	/**
+	 * Always throws, for use where the condition has already been tested
+	 * Sample Usage: Throw.Always().NoSuchMethod("Always thrown");
+	 */
+	public static Thrower Always() {
+		return throwing;
+	}
+
 	/**
 	 * Throws if a condition is true
 	 * Sample Usage: Throw.If(true).NoSuchMethod("Always thrown");
 	 * @param bool - the condition to be evaluated
 	 */
 	public static Thrower If(boolean bool) {
-		return bool ? ThrowingThrower.instance() : DefaultThrower.instance();
+		return bool ? throwing : DefaultThrower.instance();
 	}
 
 	/**
@@ -24,7 +51,7 @@ public class Throw {
 	 * @param bool - the condition to be evaluated
 	 */
 	public static Thrower Unless(boolean bool) {
-		return !bool ? ThrowingThrower.instance() : DefaultThrower.instance();
+		return !bool ? throwing : DefaultThrower.instance();
 	}
 	
 	public interface Thrower {
@@ -32,6 +59,7 @@ public class Throw {
 		public void ClassNotFound(String message) throws ClassNotFoundException;
 		public void NoSuchValue(String message) throws NoSuchValueException;
 		public void NoSuchProperty(String message) throws NoSuchPropertyException;
+		public void NoSuchField(String message) throws NoSuchFieldException;
 	}
 	
 	public static class DefaultThrower implements Thrower {
@@ -42,6 +70,7 @@ public class Throw {
 		public void ClassNotFound(String message) throws ClassNotFoundException {}
 		public void NoSuchValue(String message) throws NoSuchValueException {};
 		public void NoSuchProperty(String message) throws NoSuchPropertyException {};
+		public void NoSuchField(String message) throws NoSuchFieldException {};
 	}
 	
 	public static class ThrowingThrower implements Thrower {
@@ -52,5 +81,70 @@ public class Throw {
 		public void ClassNotFound(String message) throws ClassNotFoundException { throw new ClassNotFoundException(message); }
 		public void NoSuchValue(String message) throws NoSuchValueException { throw new NoSuchValueException(message); };
 		public void NoSuchProperty(String message) throws NoSuchPropertyException { throw new NoSuchPropertyException(message); };
+		public void NoSuchField(String message) throws NoSuchFieldException { throw new NoSuchFieldException(message); };
+	}
+	
+	public static class StacklessThrower implements Thrower {
+		private static StacklessThrower instance = new StacklessThrower();
+		public static Thrower instance() { return instance; }
+
+		public void NoSuchMethod(String message) throws NoSuchMethodException { throw new StacklessNoSuchMethodException(message); }
+		public void ClassNotFound(String message) throws ClassNotFoundException { throw new StacklessClassNotFoundException(message); }
+		public void NoSuchValue(String message) throws NoSuchValueException { throw new NoSuchValueException(message, null, false, false); };
+		public void NoSuchProperty(String message) throws NoSuchPropertyException { throw new NoSuchPropertyException(message, null, false, false); };
+		public void NoSuchField(String message) throws NoSuchFieldException { throw new StacklessNoSuchFieldException(message); };
+	}
+
+	private static class CountingThrower implements Thrower {
+		private final Thrower thrower;
+
+		private CountingThrower(Thrower thrower) {
+			this.thrower = thrower;
+		}
+
+		public void NoSuchMethod(String message) throws NoSuchMethodException { Instrumentation.thrown("NoSuchMethodException"); thrower.NoSuchMethod(message); }
+		public void ClassNotFound(String message) throws ClassNotFoundException { Instrumentation.thrown("ClassNotFoundException"); thrower.ClassNotFound(message); }
+		public void NoSuchValue(String message) throws NoSuchValueException { Instrumentation.thrown("NoSuchValueException"); thrower.NoSuchValue(message); }
+		public void NoSuchProperty(String message) throws NoSuchPropertyException { Instrumentation.thrown("NoSuchPropertyException"); thrower.NoSuchProperty(message); }
+		public void NoSuchField(String message) throws NoSuchFieldException { Instrumentation.thrown("NoSuchFieldException"); thrower.NoSuchField(message); }
+	}
+
+	private static class StacklessNoSuchMethodException extends NoSuchMethodException {
+		private static final long serialVersionUID = -2570216361396932417L;
+
+		private StacklessNoSuchMethodException(String message) {
+			super(message);
+		}
+
+		@Override
+		public synchronized Throwable fillInStackTrace() {
+			return this;
+		}
+	}
+
+	private static class StacklessClassNotFoundException extends ClassNotFoundException {
+		private static final long serialVersionUID = 4409214180716226410L;
+
+		private StacklessClassNotFoundException(String message) {
+			super(message);
+		}
+
+		@Override
+		public synchronized Throwable fillInStackTrace() {
+			return this;
+		}
+	}
+
+	private static class StacklessNoSuchFieldException extends NoSuchFieldException {
+		private static final long serialVersionUID = 7314585202376317503L;
+
+		private StacklessNoSuchFieldException(String message) {
+			super(message);
+		}
+
+		@Override
+		public synchronized Throwable fillInStackTrace() {
+			return this;
+		}
 	}
 }
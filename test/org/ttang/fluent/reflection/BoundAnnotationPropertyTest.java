@@ -0,0 +1,46 @@
+package org.ttang.fluent.reflection;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+import org.junit.Test;
+
+/**
+ * The value of a property is remembered and shared, so the arrays handed out must be copies
+ * @author ttang
+ *
+ */
+public class BoundAnnotationPropertyTest {
+
+	@Retention(RetentionPolicy.RUNTIME)
+	public @interface Nums {
+		int[] value();
+	}
+
+	@Nums({1, 2, 3})
+	private static class Numbered {
+	}
+
+	private static BoundAnnotationProperty property() throws Exception {
+		return BoundAnnotations.on(Numbered.class).matching(Nums.class).properties().named("value");
+	}
+
+	@Test
+	public void typedArrayValueIsACopy() throws Exception {
+		property().value(int[].class)[0] = 99;
+
+		assertArrayEquals(new int[] {1, 2, 3}, property().value(int[].class));
+		assertArrayEquals(new int[] {1, 2, 3}, (int[])property().value());
+		assertEquals(1, property().intValue(0));
+	}
+
+	@Test
+	public void arrayValueIsACopy() throws Exception {
+		((int[])property().value())[0] = 99;
+
+		assertArrayEquals(new int[] {1, 2, 3}, property().value(int[].class));
+	}
+}
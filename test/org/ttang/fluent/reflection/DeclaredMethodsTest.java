@@ -0,0 +1,43 @@
+package org.ttang.fluent.reflection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * The methods of a hierarchy can all be made accessible
+ * @author ttang
+ *
+ */
+public class DeclaredMethodsTest {
+
+	public static class Base {
+		protected void prepare() {
+		}
+	}
+
+	public static class Impl extends Base {
+		private void secret() {
+		}
+	}
+
+	@Test
+	public void hierarchyCanBeMadeAccessible() throws Exception {
+		List<Method> methods = DeclaredMethods.fromHierarchy(Impl.class).setAccessible(true).methods();
+
+		assertEquals(DeclaredMethods.fromHierarchy(Impl.class).methods().size(), methods.size());
+		assertEquals(1, DeclaredMethods.fromHierarchy(Impl.class).setAccessible(true).named("prepare").methods().size());
+		assertEquals(1, DeclaredMethods.fromHierarchy(Impl.class).setAccessible(true).named("secret").methods().size());
+	}
+
+	@Test
+	public void hierarchyLeavesOutProtectedMethodsOfObject() {
+		assertTrue(DeclaredMethods.fromHierarchy(Impl.class).named("finalize", "clone").methods().isEmpty());
+		assertFalse(DeclaredMethods.fromHierarchy(Impl.class).named("toString").methods().isEmpty());
+	}
+}
@@ -0,0 +1,51 @@
+package org.ttang.fluent.reflection;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+import org.junit.Test;
+
+/**
+ * Handlers inherited from a superclass are annotated through the interface the subclass implements
+ * @author ttang
+ *
+ */
+public class DispatchTableTest {
+
+	@Retention(RetentionPolicy.RUNTIME)
+	public @interface On {
+		String value();
+	}
+
+	public interface Listener {
+		@On("x")
+		void handle(Object event);
+	}
+
+	public static class Base {
+		int handled;
+
+		public void handle(Object event) {
+			handled++;
+		}
+	}
+
+	public static class Impl extends Base implements Listener {
+	}
+
+	@Test
+	public void byParameterTypeRoutesInheritedHandler() throws Throwable {
+		Impl target = new Impl();
+		assertEquals(1, DispatchTable.byParameterType(target, On.class).dispatch("event"));
+		assertEquals(1, target.handled);
+	}
+
+	@Test
+	public void byPropertyRoutesInheritedHandler() throws Throwable {
+		Impl target = new Impl();
+		assertEquals(1, DispatchTable.byProperty(target, On.class, "value").dispatch("x", "event"));
+		assertEquals(1, target.handled);
+	}
+}
@@ -0,0 +1,37 @@
+package org.ttang.fluent.reflection;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * The cache counts one lookup per entry point, not one per snapshot read behind it
+ * @author ttang
+ *
+ */
+public class MetadataCacheTest {
+
+	public static class Counted {
+		public void first() {
+		}
+
+		public void second() {
+		}
+	}
+
+	@Test
+	public void countsOneLookupPerEntryPoint() throws Exception {
+		MetadataCache.evict(Counted.class);
+		long hits = MetadataCache.hits();
+		long misses = MetadataCache.misses();
+
+		DeclaredMethods.from(Counted.class).named("first").method();
+		assertEquals(misses + 1, MetadataCache.misses());
+		assertEquals(hits, MetadataCache.hits());
+
+		DeclaredMethods.from(Counted.class).named("first", "second").setAccessible(true).methods();
+		DeclaredMethods.fromHierarchy(Counted.class).named("second").method();
+		assertEquals(misses + 1, MetadataCache.misses());
+		assertEquals(hits + 2, MetadataCache.hits());
+	}
+}